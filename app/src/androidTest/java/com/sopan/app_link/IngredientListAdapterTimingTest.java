@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Times how long an ingredient row takes to inflate and to bind on the main thread, after a
+ * warm-up so class loading and the first inflation are not counted. The per-row times are
+ * reported as instrumentation status, not asserted.
+ */
+@RunWith(AndroidJUnit4.class)
+public class IngredientListAdapterTimingTest {
+
+    private static final String TAG = "IngredientListAdapterTimingTest";
+
+    private static final int WARM_UP_ROWS = 50;
+    private static final int ROWS = 500;
+
+    @Test
+    public void measurePerRowCreateAndBind() {
+        final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        final List<Recipe.Ingredient> ingredients = new ArrayList<Recipe.Ingredient>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Recipe.Ingredient ingredient = new Recipe.Ingredient();
+            ingredient.setId(i);
+            ingredient.setAmount(i + " g");
+            ingredient.setDescription("finely chopped ingredient " + i);
+            ingredients.add(ingredient);
+        }
+
+        final List<IngredientListAdapter.ViewHolder> holders = new ArrayList<IngredientListAdapter.ViewHolder>(ROWS);
+        final long[] nanos = new long[2];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = instrumentation.getTargetContext();
+                RecyclerView parent = new RecyclerView(context);
+                parent.setLayoutManager(new LinearLayoutManager(context));
+                IngredientListAdapter adapter = new IngredientListAdapter();
+                // the first list is applied right away, without a diff
+                adapter.submitList(ingredients);
+
+                for (int i = 0; i < WARM_UP_ROWS; i++) {
+                    adapter.bindViewHolder(adapter.createViewHolder(parent, 0), i);
+                }
+
+                long start = SystemClock.elapsedRealtimeNanos();
+                for (int i = 0; i < ROWS; i++) {
+                    holders.add(adapter.createViewHolder(parent, 0));
+                }
+                nanos[0] = SystemClock.elapsedRealtimeNanos() - start;
+
+                start = SystemClock.elapsedRealtimeNanos();
+                for (int i = 0; i < ROWS; i++) {
+                    adapter.bindViewHolder(holders.get(i), i);
+                }
+                nanos[1] = SystemClock.elapsedRealtimeNanos() - start;
+            }
+        });
+
+        double createMicros = nanos[0] / 1000.0 / ROWS;
+        double bindMicros = nanos[1] / 1000.0 / ROWS;
+        Bundle results = new Bundle();
+        results.putDouble("create_us_per_row", createMicros);
+        results.putDouble("bind_us_per_row", bindMicros);
+        instrumentation.sendStatus(0, results);
+        Log.i(TAG, ROWS + " ingredient rows: create " + createMicros + " us/row, bind " + bindMicros + " us/row");
+        // every row was bound to its own ingredient
+        for (int i = 0; i < ROWS; i++) {
+            assertEquals(ingredients.get(i).getDescription(), holders.get(i).description.getText().toString());
+        }
+    }
+}
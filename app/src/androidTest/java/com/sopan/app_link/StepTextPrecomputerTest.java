@@ -0,0 +1,173 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link;
+
+import android.app.Instrumentation;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.TypedValue;
+import android.view.View;
+
+import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that step text is measured with the params of the view it is bound to, and measures
+ * how much main-thread time showing precomputed step text saves over setting the HTML on the
+ * view directly. The timings are reported as instrumentation status, not asserted.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StepTextPrecomputerTest {
+
+    private static final String TAG = "StepTextPrecomputerTest";
+
+    private static final int STEPS = 20;
+    private static final int WIDTH = 1080;
+
+    private Instrumentation instrumentation;
+    private Recipe recipe;
+
+    @Before
+    public void createRecipe() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        recipe = new Recipe("recipe-1");
+        for (int i = 0; i < STEPS; i++) {
+            Recipe.Step step = new Recipe.Step();
+            StringBuilder description = new StringBuilder();
+            for (int line = 0; line < 12; line++) {
+                description.append("Stir the <b>sauce</b> for step ").append(i)
+                        .append(" until it thickens and coats the back of a spoon.<br/>");
+            }
+            step.setDescription(description.toString());
+            recipe.addStep(step);
+        }
+    }
+
+    @Test
+    public void stepTextMatchesBoundView() throws Exception {
+        final AppCompatTextView[] views = new AppCompatTextView[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                views[0] = new AppCompatTextView(instrumentation.getTargetContext());
+            }
+        });
+        AppCompatTextView view = views[0];
+        StepTextPrecomputer stepTexts = new StepTextPrecomputer(recipe);
+
+        Future<PrecomputedTextCompat> first = stepTexts.getStepText(3, view);
+        PrecomputedTextCompat text = first.get();
+        assertEquals(StepTextPrecomputer.fromHtml(recipe.getInstructions().get(3).getDescription()).toString(),
+                text.toString());
+        assertEquals(TextViewCompat.getTextMetricsParams(view), text.getParams());
+        // same params, same results
+        assertSame(first, stepTexts.getStepText(3, view));
+
+        view.setTextSize(TypedValue.COMPLEX_UNIT_SP, 30);
+        Future<PrecomputedTextCompat> resized = stepTexts.getStepText(3, view);
+        assertNotSame(first, resized);
+        assertEquals(TextViewCompat.getTextMetricsParams(view), resized.get().getParams());
+        // a view may still hold the first future, so it must survive the params change
+        assertFalse(first.isCancelled());
+        stepTexts.cancel();
+        assertFalse(resized.isCancelled());
+        assertSame(resized, stepTexts.getStepText(3, view));
+    }
+
+    @Test
+    public void measureMainThreadSaving() throws Exception {
+        final List<AppCompatTextView> plainViews = new ArrayList<AppCompatTextView>();
+        final List<AppCompatTextView> precomputedViews = new ArrayList<AppCompatTextView>();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < STEPS; i++) {
+                    plainViews.add(new AppCompatTextView(instrumentation.getTargetContext()));
+                    precomputedViews.add(new AppCompatTextView(instrumentation.getTargetContext()));
+                }
+            }
+        });
+
+        // precompute off the main thread first, as the step pages find it when they bind
+        final StepTextPrecomputer stepTexts = new StepTextPrecomputer(recipe);
+        final List<Future<PrecomputedTextCompat>> futures = new ArrayList<Future<PrecomputedTextCompat>>();
+        for (int i = 0; i < STEPS; i++) {
+            futures.add(stepTexts.getStepText(i, precomputedViews.get(i)));
+        }
+        for (Future<PrecomputedTextCompat> future : futures) {
+            future.get();
+        }
+
+        final long[] nanos = new long[2];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                long start = SystemClock.elapsedRealtimeNanos();
+                for (int i = 0; i < STEPS; i++) {
+                    AppCompatTextView view = plainViews.get(i);
+                    view.setText(StepTextPrecomputer.fromHtml(recipe.getInstructions().get(i).getDescription()));
+                    layout(view);
+                }
+                nanos[0] = SystemClock.elapsedRealtimeNanos() - start;
+
+                start = SystemClock.elapsedRealtimeNanos();
+                for (int i = 0; i < STEPS; i++) {
+                    AppCompatTextView view = precomputedViews.get(i);
+                    view.setTextFuture(futures.get(i));
+                    layout(view);
+                }
+                nanos[1] = SystemClock.elapsedRealtimeNanos() - start;
+            }
+        });
+
+        Bundle results = new Bundle();
+        results.putLong("main_thread_plain_us", nanos[0] / 1000);
+        results.putLong("main_thread_precomputed_us", nanos[1] / 1000);
+        instrumentation.sendStatus(0, results);
+        Log.i(TAG, STEPS + " steps on the main thread: plain " + nanos[0] / 1000 + " us, precomputed "
+                + nanos[1] / 1000 + " us");
+        // both paths laid out the same text
+        for (int i = 0; i < STEPS; i++) {
+            assertTrue(plainViews.get(i).getLineCount() > 1);
+            assertEquals(plainViews.get(i).getText().toString(), precomputedViews.get(i).getText().toString());
+        }
+    }
+
+    private static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+    }
+}
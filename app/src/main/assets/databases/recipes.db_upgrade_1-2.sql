@@ -0,0 +1,2 @@
+CREATE INDEX IF NOT EXISTS recipe_ingredients_recipe_id_idx ON recipe_ingredients (recipe_id, _id);
+CREATE INDEX IF NOT EXISTS recipe_instructions_recipe_id_idx ON recipe_instructions (recipe_id, num);
@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS recipes_title_id_idx ON recipes (title, _id);
@@ -0,0 +1,2 @@
+CREATE VIRTUAL TABLE IF NOT EXISTS recipes_fts USING fts4(title, description, ingredients, prefix="2,3");
+INSERT INTO recipes_fts (docid, title, description, ingredients) SELECT rowid, title, description, (SELECT group_concat(description, ' ') FROM recipe_ingredients WHERE recipe_id = recipes._id) FROM recipes;
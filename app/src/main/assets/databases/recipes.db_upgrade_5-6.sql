@@ -0,0 +1,2 @@
+ALTER TABLE recipes ADD COLUMN prep_time_minutes INTEGER;
+CREATE INDEX IF NOT EXISTS recipes_prep_time_minutes_idx ON recipes (prep_time_minutes, title, _id, prep_time);
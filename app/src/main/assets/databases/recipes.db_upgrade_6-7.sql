@@ -0,0 +1,5 @@
+CREATE TABLE IF NOT EXISTS ingredient_dictionary (_id INTEGER PRIMARY KEY, name TEXT NOT NULL UNIQUE);
+ALTER TABLE recipe_ingredients ADD COLUMN ingredient_id INTEGER;
+ALTER TABLE recipe_ingredients ADD COLUMN quantity REAL;
+ALTER TABLE recipe_ingredients ADD COLUMN unit TEXT;
+CREATE INDEX IF NOT EXISTS recipe_ingredients_ingredient_id_idx ON recipe_ingredients (ingredient_id, recipe_id);
@@ -0,0 +1,6 @@
+ALTER TABLE recipes ADD COLUMN search_id INTEGER;
+UPDATE recipes SET search_id = rowid;
+CREATE UNIQUE INDEX IF NOT EXISTS recipes_search_id_idx ON recipes (search_id);
+DROP TRIGGER IF EXISTS recipes_fts_insert;
+DROP TRIGGER IF EXISTS recipes_fts_update;
+DROP TRIGGER IF EXISTS recipes_fts_delete;
@@ -17,32 +17,39 @@
 package com.sopan.app_link;
 
 import android.content.Intent;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Parcel;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
-import android.widget.TableLayout;
-import android.widget.TableRow;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import com.sopan.app_link.content_provider.FoodContentProvider;
-import com.sopan.app_link.database.FoodTable;
+import com.sopan.app_link.database.FlatRecipeStore;
+import com.sopan.app_link.metrics.LatencyHistogram;
+import com.sopan.app_link.metrics.MetricsRegistry;
 import com.squareup.picasso.Callback;
-import com.squareup.picasso.Picasso;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.AppCompatTextView;
+import androidx.core.os.TraceCompat;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentPagerAdapter;
 import androidx.fragment.app.FragmentTransaction;
+import androidx.recyclerview.widget.ConcatAdapter;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewpager.widget.ViewPager;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * This Activity class is used to display a {@link Recipe} object
  */
@@ -58,85 +65,227 @@ public class FoodActivity extends AppCompatActivity {
 
     private Recipe recipe;
 
+    private RecipeLoader recipeLoader;
+
+    // whether recipes are read from the flat catalog before the provider
+    private boolean useFlatStore;
+
+    // the step texts of the recipe shown, laid out ahead of time
+    private StepTextPrecomputer stepTexts;
+
+    // photos of this many pages on either side of the current one are fetched ahead
+    private static final int PHOTO_PREFETCH_DISTANCE = 2;
+
+    // saved state: the recipe shown, or only its id if the recipe is too large to save
+    private static final String STATE_RECIPE = "recipe";
+    private static final String STATE_RECIPE_ID = "recipe_id";
+
+    private static final String DEEP_LINK_TRACE_SECTION = "FoodActivity.deepLink";
+    private static final LatencyHistogram sFirstFrameLatency =
+            MetricsRegistry.getInstance().histogram("deeplink.first_frame");
+    private static final AtomicLong sRejectedDeepLinks = MetricsRegistry.getInstance().counter("deeplink.rejected");
+    private static int sDeepLinkTraceCookie;
+
+    // start of the deep link being shown, and its trace cookie while its section is open
+    private long deepLinkStartNanos;
+    private int deepLinkTraceCookie;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_food);
 
+        useFlatStore = getResources().getBoolean(R.bool.use_flat_recipe_store);
+        // the loader maps the flat catalog on its own thread when it first needs it
+        recipeLoader = new RecipeLoader(getContentResolver(), RecipeCache.getInstance(this),
+                useFlatStore ? this : null);
+        // the fragments ask for it once the recipe is loaded, by when it is set up
+        RecipeImageLoader.preload(this);
+
+        mViewPager = (ViewPager) findViewById(R.id.pager);
+        mViewPager.addOnPageChangeListener(new ViewPager.SimpleOnPageChangeListener() {
+            @Override
+            public void onPageSelected(int position) {
+                prefetchPhotos(position);
+            }
+        });
+
+        if (savedInstanceState != null && restoreRecipe(savedInstanceState)) {
+            return;
+        }
+
         // ATTENTION: This was auto-generated to handle app links.
         handleIntent();
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (recipe != null) {
+            outState.putString(STATE_RECIPE_ID, recipe.getId());
+            // a huge recipe is reloaded instead, it could overflow the binder transaction; the
+            // recipe is marshalled once, and those bytes are both measured and saved
+            int maxBytes = getResources().getInteger(R.integer.saved_recipe_max_kb) * 1024;
+            Parcel parcel = Parcel.obtain();
+            try {
+                recipe.writeToParcel(parcel, 0);
+                if (parcel.dataSize() <= maxBytes) {
+                    outState.putByteArray(STATE_RECIPE, parcel.marshall());
+                }
+            } finally {
+                parcel.recycle();
+            }
+        }
+    }
+
+    /**
+     * Shows the recipe that was on screen before the activity was recreated, without querying
+     * the provider if it was saved whole.
+     *
+     * @return false if no recipe had been shown yet, in which case the deep link is handled
+     * again.
+     */
+    private boolean restoreRecipe(Bundle savedInstanceState) {
+        byte[] saved = savedInstanceState.getByteArray(STATE_RECIPE);
+        if (saved != null) {
+            // saved by this same build, so the layout of the bytes matches
+            Parcel parcel = Parcel.obtain();
+            try {
+                parcel.unmarshall(saved, 0, saved.length);
+                parcel.setDataPosition(0);
+                bindRecipe(null, Recipe.CREATOR.createFromParcel(parcel));
+            } finally {
+                parcel.recycle();
+            }
+            return true;
+        }
+        String recipeId = savedInstanceState.getString(STATE_RECIPE_ID);
+        if (recipeId == null) {
+            return false;
+        }
+        // the restored pages were created without a recipe; let the pager make new ones
+        FragmentManager fragmentManager = getSupportFragmentManager();
+        FragmentTransaction transaction = fragmentManager.beginTransaction();
+        for (Fragment fragment : fragmentManager.getFragments()) {
+            transaction.remove(fragment);
+        }
+        transaction.commitNow();
+        showRecipe(FoodContentProvider.CONTENT_URI.buildUpon().appendPath("full").appendPath(recipeId).build());
+        return true;
+    }
+
     @Override
     protected void onNewIntent(Intent intent) {
         super.onNewIntent(intent);
+        // singleTop delivers the new deep link here; make it the current intent
+        setIntent(intent);
         handleIntent();
     }
 
+    @Override
+    protected void onDestroy() {
+        recipeLoader.cancel();
+        if (stepTexts != null) {
+            stepTexts.cancel();
+        }
+        super.onDestroy();
+    }
+
     private void handleIntent() {
         Intent appLinkIntent = getIntent();
         String appLinkAction = appLinkIntent.getAction();
         Uri appLinkData = appLinkIntent.getData();
         if (appLinkData != null) {
+            endDeepLinkTrace();
+            deepLinkStartNanos = System.nanoTime();
+            deepLinkTraceCookie = ++sDeepLinkTraceCookie;
+            TraceCompat.beginAsyncSection(DEEP_LINK_TRACE_SECTION, deepLinkTraceCookie);
+
             String recipeId = appLinkData.getLastPathSegment();
-            Uri recipeUri = FoodContentProvider.CONTENT_URI.buildUpon().appendPath(recipeId).build();
-            showRecipe(recipeUri);
+            Uri recipeUri = FoodContentProvider.CONTENT_URI.buildUpon().appendPath("full").appendPath(recipeId).build();
+            // a recipe in the flat catalog is loaded without asking the provider at all; until
+            // the loader has opened the catalog, the provider's id filter decides
+            FlatRecipeStore flatStore = useFlatStore ? FlatRecipeStore.peekInstance() : null;
+            if ((flatStore != null && flatStore.contains(recipeId)) || mightContainRecipe(recipeId)) {
+                showRecipe(recipeUri);
+            } else {
+                // the id filter proves there is no such recipe, no need to query for it
+                sRejectedDeepLinks.incrementAndGet();
+                recipeLoader.cancel();
+                bindRecipe(recipeUri, null);
+            }
         }
     }
 
-    private void showRecipe(Uri recipeUri) {
-        Log.d("Recipe Uri", recipeUri.toString());
+    private void endDeepLinkTrace() {
+        if (deepLinkTraceCookie != 0) {
+            TraceCompat.endAsyncSection(DEEP_LINK_TRACE_SECTION, deepLinkTraceCookie);
+            deepLinkTraceCookie = 0;
+        }
+    }
 
-        String[] projection = {FoodTable.ID, FoodTable.TITLE,
-                FoodTable.DESCRIPTION, FoodTable.PHOTO,
-                FoodTable.PREP_TIME};
-        Cursor cursor = getContentResolver().query(recipeUri, projection, null, null, null);
-        if (cursor != null && cursor.moveToFirst()) {
-
-            recipe = Recipe.fromCursor(cursor);
-
-            Uri ingredientsUri = FoodContentProvider.CONTENT_URI.buildUpon().appendPath("ingredients").appendPath(recipe.getId()).build();
-            Cursor ingredientsCursor = getContentResolver().query(ingredientsUri, projection, null, null, null);
-            if (ingredientsCursor != null && ingredientsCursor.moveToFirst()) {
-                do {
-                    Recipe.Ingredient ingredient = new Recipe.Ingredient();
-                    ingredient.setAmount(ingredientsCursor.getString(0));
-                    ingredient.setDescription(ingredientsCursor.getString(1));
-                    recipe.addIngredient(ingredient);
-                    ingredientsCursor.moveToNext();
-                } while (!ingredientsCursor.isAfterLast());
-                ingredientsCursor.close();
+    /**
+     * Records the time from the deep link to the first frame that shows its recipe.
+     */
+    private void recordFirstFrame() {
+        final int traceCookie = deepLinkTraceCookie;
+        final ViewTreeObserver observer = mViewPager.getViewTreeObserver();
+        observer.addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                if (observer.isAlive()) {
+                    observer.removeOnPreDrawListener(this);
+                }
+                // a newer deep link took over the trace section and the timing, and a
+                // restored recipe has no deep link to time
+                if (traceCookie != 0 && traceCookie == deepLinkTraceCookie) {
+                    sFirstFrameLatency.record(System.nanoTime() - deepLinkStartNanos);
+                    endDeepLinkTrace();
+                }
+                return true;
             }
+        });
+    }
+
+    private boolean mightContainRecipe(String recipeId) {
+        Bundle result = getContentResolver().call(FoodContentProvider.CONTENT_URI,
+                FoodContentProvider.METHOD_MIGHT_CONTAIN_RECIPE, recipeId, null);
+        return result == null || result.getBoolean(FoodContentProvider.KEY_MIGHT_CONTAIN, true);
+    }
 
-            Uri instructionsUri = FoodContentProvider.CONTENT_URI.buildUpon().appendPath("instructions").appendPath(recipe.getId()).build();
-            Cursor instructionsCursor = getContentResolver().query(instructionsUri, projection, null, null, null);
-            if (instructionsCursor != null && instructionsCursor.moveToFirst()) {
-                do {
-                    Recipe.Step step = new Recipe.Step();
-                    step.setDescription(instructionsCursor.getString(1));
-                    step.setPhoto(instructionsCursor.getString(2));
-                    recipe.addStep(step);
-                    instructionsCursor.moveToNext();
-                } while (!instructionsCursor.isAfterLast());
-                instructionsCursor.close();
+    private void showRecipe(Uri recipeUri) {
+        Log.d("Recipe Uri", recipeUri.toString());
+
+        // the query runs in the background; a newer deep link cancels this one
+        recipeLoader.load(recipeUri, new RecipeLoader.Callback() {
+            @Override
+            public void onRecipeLoaded(Uri recipeUri, Recipe recipe) {
+                bindRecipe(recipeUri, recipe);
             }
+        });
+    }
 
-            // always close the cursor
-            cursor.close();
-        } else {
+    private void bindRecipe(Uri recipeUri, Recipe recipe) {
+        if (recipe == null) {
             Toast toast = Toast.makeText(getApplicationContext(),
                     "No match for deep link " + recipeUri.toString(),
                     Toast.LENGTH_SHORT);
             toast.show();
-        }
+            endDeepLinkTrace();
+        } else {
+            this.recipe = recipe;
+            if (stepTexts != null) {
+                stepTexts.cancel();
+            }
+            // measured once the first step page binds its text view
+            stepTexts = new StepTextPrecomputer(recipe);
 
-        if (recipe != null) {
             // Create the adapter that will return a fragment for each of the steps of the recipe.
             mSectionsPagerAdapter = new SectionsPagerAdapter(getSupportFragmentManager());
 
             // Set up the ViewPager with the sections adapter.
-            mViewPager = (ViewPager) findViewById(R.id.pager);
             mViewPager.setAdapter(mSectionsPagerAdapter);
+            prefetchPhotos(mViewPager.getCurrentItem());
 
             // Set the recipe title
             TextView recipeTitle = (TextView) findViewById(R.id.recipeTitle);
@@ -145,9 +294,51 @@ public class FoodActivity extends AppCompatActivity {
             // Set the recipe prep time
             TextView recipeTime = (TextView) findViewById(R.id.recipeTime);
             recipeTime.setText("  " + recipe.getPrepTime());
+
+            recordFirstFrame();
         }
     }
 
+    /**
+     * Fetches the photos of the pages around the given one, at the size they are shown in.
+     */
+    private void prefetchPhotos(int position) {
+        RecipeImageLoader imageLoader = RecipeImageLoader.peekInstance();
+        if (recipe == null || imageLoader == null) {
+            // nothing to fetch for yet, or the loader is still being set up
+            return;
+        }
+        int width = mViewPager.getWidth();
+        if (width == 0) {
+            // not laid out yet; the pages span the screen
+            width = getResources().getDisplayMetrics().widthPixels;
+        }
+        int height = getResources().getDimensionPixelSize(R.dimen.recipe_image_height);
+        int count = mSectionsPagerAdapter.getCount();
+        for (int distance = 1; distance <= PHOTO_PREFETCH_DISTANCE; distance++) {
+            if (position + distance < count) {
+                imageLoader.prefetch(getPagePhoto(recipe, position + distance), width, height);
+            }
+            if (position - distance >= 0) {
+                imageLoader.prefetch(getPagePhoto(recipe, position - distance), width, height);
+            }
+        }
+    }
+
+    /**
+     * Returns the photo of a page: the recipe photo on the first page and on steps without
+     * their own photo, otherwise the step photo.
+     */
+    static String getPagePhoto(Recipe recipe, int position) {
+        if (position > 0) {
+            Recipe.Step step = recipe.getInstructions().get(position - 1);
+            if (step.getPhoto() != null) {
+                return step.getPhoto();
+            }
+        }
+        return recipe.getPhoto();
+    }
+
     /**
      * A {@link FragmentPagerAdapter} that returns a fragment corresponding to
      * one of the sections/tabs/pages.
@@ -215,24 +406,19 @@ public class FoodActivity extends AppCompatActivity {
             View rootView = inflater.inflate(R.layout.fragment_food, container, false);
 
             this.recipe = ((FoodActivity) getActivity()).recipe;
-
+            if (recipe == null) {
+                // restored before the recipe was; the activity replaces this page once it loads
+                return rootView;
+            }
 
             progressBar = rootView.findViewById(R.id.loading);
             recipeImage = rootView.findViewById(R.id.recipe_image);
 
-            String photoUrl = recipe.getPhoto();
-
             int sectionNumber = this.getArguments().getInt(ARG_SECTION_NUMBER);
-            if (sectionNumber > 1) {
-                Recipe.Step step = recipe.getInstructions().get(sectionNumber - 2);
-                if (step.getPhoto() != null) {
-                    photoUrl = step.getPhoto();
-                }
-            }
+            String photoUrl = getPagePhoto(recipe, sectionNumber - 1);
 
-            Picasso.get()
-                    .load(photoUrl)
-                    .into(recipeImage, new Callback.EmptyCallback() {
+            RecipeImageLoader.getInstance(getActivity())
+                    .load(photoUrl, recipeImage, new Callback.EmptyCallback() {
                         @Override
                         public void onSuccess() {
                             progressBar.setVisibility(View.GONE);
@@ -249,9 +435,11 @@ public class FoodActivity extends AppCompatActivity {
             FragmentTransaction transaction = getChildFragmentManager().beginTransaction();
 
             if (sectionNumber == 1) {
+                rootView.findViewById(R.id.instruction_scroll).setVisibility(View.GONE);
                 Fragment ingredientsFragment = IngredientsFragment.newInstance(recipe, sectionNumber);
                 transaction.replace(R.id.ingredients_fragment, ingredientsFragment).commit();
             } else {
+                rootView.findViewById(R.id.ingredients_fragment).setVisibility(View.GONE);
                 Fragment instructionFragment = InstructionFragment.newInstance(recipe, sectionNumber);
                 transaction.replace(R.id.instruction_fragment, instructionFragment).commit();
             }
@@ -289,19 +477,24 @@ public class FoodActivity extends AppCompatActivity {
 
         @Override
         public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
-            View rootView = inflater.inflate(R.layout.ingredients_fragment, container, false);
+            RecyclerView list = (RecyclerView) inflater.inflate(R.layout.ingredients_fragment, container, false);
 
             this.recipe = ((FoodActivity) getActivity()).recipe;
-
-            TableLayout table = rootView.findViewById(R.id.ingredientsTable);
-            for (Recipe.Ingredient ingredient : recipe.getIngredients()) {
-                TableRow row = (TableRow) inflater.inflate(R.layout.ingredients_row, null);
-                ((TextView) row.findViewById(R.id.attrib_name)).setText(ingredient.getAmount());
-                ((TextView) row.findViewById(R.id.attrib_value)).setText(ingredient.getDescription());
-                table.addView(row);
+            if (recipe == null) {
+                return list;
             }
 
-            return rootView;
+            // only the rows on screen are inflated, and they are rebound as the list scrolls
+            IngredientListAdapter adapter = new IngredientListAdapter();
+            ConcatAdapter.Config config = new ConcatAdapter.Config.Builder()
+                    .setStableIdMode(ConcatAdapter.Config.StableIdMode.ISOLATED_STABLE_IDS)
+                    .build();
+            list.setLayoutManager(new LinearLayoutManager(getActivity()));
+            list.setHasFixedSize(true);
+            list.setAdapter(new ConcatAdapter(config, new IngredientListAdapter.HeaderAdapter(), adapter));
+            adapter.submitList(recipe.getIngredients());
+
+            return list;
         }
     }
 
@@ -338,15 +531,20 @@ public class FoodActivity extends AppCompatActivity {
             int sectionNumber = this.getArguments().getInt(ARG_SECTION_NUMBER);
 
             this.recipe = ((FoodActivity) getActivity()).recipe;
+            if (recipe == null || sectionNumber - 2 >= recipe.getInstructions().size()) {
+                return rootView;
+            }
 
             TextView instructionTitle = rootView.findViewById(R.id.instructionTitle);
-            TextView instructionBody = rootView.findViewById(R.id.instructionBody);
+            // AppCompatActivity inflates every TextView as an AppCompatTextView
+            AppCompatTextView instructionBody = rootView.findViewById(R.id.instructionBody);
 
             instructionTitle.setText("Step " + Integer.toString(sectionNumber - 1));
 
-            Recipe.Step step = recipe.getInstructions().get(sectionNumber - 2);
-
-            instructionBody.setText(step.getDescription());
+            // the text is laid out in the background with this view's params; the view only
+            // waits for it if the page is measured before it is done
+            StepTextPrecomputer stepTexts = ((FoodActivity) getActivity()).stepTexts;
+            instructionBody.setTextFuture(stepTexts.getStepText(sectionNumber - 2, instructionBody));
 
             return rootView;
         }
@@ -16,7 +16,32 @@
 
 package com.sopan.app_link;
 
+import android.content.ContentResolver;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.AdapterView;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import com.sopan.app_link.content_provider.FoodContentProvider;
+import com.sopan.app_link.database.FoodTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import androidx.appcompat.app.AppCompatActivity;
 
 /**
@@ -24,9 +49,181 @@ import androidx.appcompat.app.AppCompatActivity;
  */
 public class HomeActivity extends AppCompatActivity {
 
+    private static final String TAG = "HomeActivity";
+
+    private static final int PAGE_SIZE = 20;
+
+    // start loading the next page when this many rows are left below the last visible one
+    private static final int PREFETCH_DISTANCE = 5;
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private RecipeListAdapter adapter;
+    private boolean loading;
+    private boolean endReached;
+    // set when a page failed to load, so scrolling does not retry until the next touch
+    private boolean pageFailed;
+    private boolean destroyed;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_home);
+
+        adapter = new RecipeListAdapter();
+        ListView recipeList = findViewById(R.id.recipeList);
+        recipeList.setAdapter(adapter);
+        recipeList.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+            @Override
+            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+                Recipe recipe = adapter.getItem(position);
+                Intent intent = new Intent(HomeActivity.this, FoodActivity.class);
+                intent.setData(Uri.parse(recipe.getUrl()));
+                startActivity(intent);
+            }
+        });
+        recipeList.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+                if (scrollState == SCROLL_STATE_TOUCH_SCROLL) {
+                    pageFailed = false;
+                }
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                if (firstVisibleItem + visibleItemCount + PREFETCH_DISTANCE >= totalItemCount) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        loadNextPage();
+    }
+
+    @Override
+    protected void onDestroy() {
+        destroyed = true;
+        super.onDestroy();
+    }
+
+    /**
+     * Loads the page after the last recipe shown, keyed on its (title, _id), or on its _id
+     * alone if it has no title.
+     */
+    private void loadNextPage() {
+        if (loading || endReached || pageFailed) {
+            return;
+        }
+        loading = true;
+
+        Uri.Builder builder = FoodContentProvider.CONTENT_URI.buildUpon()
+                .appendQueryParameter(FoodContentProvider.PARAM_LIMIT, Integer.toString(PAGE_SIZE));
+        if (adapter.getCount() > 0) {
+            Recipe last = adapter.getItem(adapter.getCount() - 1);
+            if (last.getTitle() != null) {
+                builder.appendQueryParameter(FoodContentProvider.PARAM_AFTER_TITLE, last.getTitle());
+            }
+            builder.appendQueryParameter(FoodContentProvider.PARAM_AFTER_ID, last.getId());
+        }
+        final Uri pageUri = builder.build();
+        final ContentResolver contentResolver = getContentResolver();
+
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                String[] projection = {FoodTable.ID, FoodTable.TITLE, FoodTable.PREP_TIME};
+                final List<Recipe> page = new ArrayList<Recipe>(PAGE_SIZE);
+                Cursor cursor = null;
+                try {
+                    cursor = contentResolver.query(pageUri, projection, null, null, null);
+                    if (cursor != null) {
+                        Recipe.Mapper mapper = new Recipe.Mapper(cursor);
+                        while (cursor.moveToNext()) {
+                            page.add(mapper.map(cursor));
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Loading " + pageUri + " failed", e);
+                    postPageFailed();
+                    return;
+                } finally {
+                    // always close the cursor
+                    if (cursor != null) {
+                        cursor.close();
+                    }
+                }
+
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (destroyed) {
+                            return;
+                        }
+                        loading = false;
+                        endReached = page.size() < PAGE_SIZE;
+                        adapter.addAll(page);
+                    }
+                });
+            }
+        });
+    }
+
+    private void postPageFailed() {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (destroyed) {
+                    return;
+                }
+                loading = false;
+                pageFailed = true;
+                Toast.makeText(getApplicationContext(), "Could not load recipes", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * A list adapter over the recipe pages loaded so far.
+     */
+    private static class RecipeListAdapter extends BaseAdapter {
+
+        private final List<Recipe> recipes = new ArrayList<Recipe>();
+
+        void addAll(List<Recipe> page) {
+            if (!page.isEmpty()) {
+                recipes.addAll(page);
+                notifyDataSetChanged();
+            }
+        }
+
+        @Override
+        public int getCount() {
+            return recipes.size();
+        }
+
+        @Override
+        public Recipe getItem(int position) {
+            return recipes.get(position);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            if (convertView == null) {
+                convertView = LayoutInflater.from(parent.getContext())
+                        .inflate(android.R.layout.simple_list_item_2, parent, false);
+            }
+            Recipe recipe = recipes.get(position);
+            ((TextView) convertView.findViewById(android.R.id.text1)).setText(recipe.getTitle());
+            ((TextView) convertView.findViewById(android.R.id.text2)).setText(recipe.getPrepTime());
+            return convertView;
+        }
     }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link;
+
+import android.content.res.Resources;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Binds the ingredients of a recipe to recycled rows. Rows are keyed by the ingredient row
+ * id, or by their amount and description when they were read without one, so a new list
+ * only rebinds the rows whose ingredient changed; the diff itself runs off the main thread.
+ */
+public class IngredientListAdapter extends ListAdapter<Recipe.Ingredient, IngredientListAdapter.ViewHolder> {
+
+    private static final DiffUtil.ItemCallback<Recipe.Ingredient> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<Recipe.Ingredient>() {
+                @Override
+                public boolean areItemsTheSame(Recipe.Ingredient oldItem, Recipe.Ingredient newItem) {
+                    return getItemKey(oldItem) == getItemKey(newItem);
+                }
+
+                @Override
+                public boolean areContentsTheSame(Recipe.Ingredient oldItem, Recipe.Ingredient newItem) {
+                    return sameText(oldItem.getAmount(), newItem.getAmount())
+                            && sameText(oldItem.getDescription(), newItem.getDescription());
+                }
+            };
+
+    public IngredientListAdapter() {
+        super(DIFF_CALLBACK);
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItemKey(getItem(position));
+    }
+
+    /**
+     * Returns the row id of the ingredient, or for one read without its id a key of its
+     * amount and description. Content keys are negative, so they never collide with a row
+     * id, and never {@link RecyclerView#NO_ID}. The same ingredient listed twice gets the
+     * same content key.
+     */
+    static long getItemKey(Recipe.Ingredient ingredient) {
+        long id = ingredient.getId();
+        if (id != Recipe.Ingredient.NO_ID) {
+            return id;
+        }
+        long key = ((long) hash(ingredient.getAmount()) << 32) | (hash(ingredient.getDescription()) & 0xffffffffL);
+        // set the sign bit and clear the next one, which -1 has set
+        return Long.MIN_VALUE | (key & 0x3fffffffffffffffL);
+    }
+
+    private static int hash(String text) {
+        return text != null ? text.hashCode() : 0;
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View row = LayoutInflater.from(parent.getContext()).inflate(R.layout.ingredients_row, parent, false);
+        return new ViewHolder(row);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        Recipe.Ingredient ingredient = getItem(position);
+        holder.amount.setText(ingredient.getAmount());
+        holder.description.setText(ingredient.getDescription());
+    }
+
+    private static boolean sameText(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView amount;
+        final TextView description;
+
+        ViewHolder(View row) {
+            super(row);
+            amount = row.findViewById(R.id.attrib_name);
+            description = row.findViewById(R.id.attrib_value);
+        }
+    }
+
+    /**
+     * The single header row above the ingredients: the scalloped edge over the recipe image
+     * and the "Ingredients" title. It scrolls away with the list.
+     */
+    public static class HeaderAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        public HeaderAdapter() {
+            setHasStableIds(true);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return 0;
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            View header = LayoutInflater.from(parent.getContext()).inflate(R.layout.ingredients_header, parent, false);
+            // the edge starts its own height above the bottom of the recipe image
+            Resources res = parent.getResources();
+            ViewGroup.MarginLayoutParams edge =
+                    (ViewGroup.MarginLayoutParams) header.findViewById(R.id.scalloped_edge).getLayoutParams();
+            edge.topMargin = res.getDimensionPixelSize(R.dimen.recipe_image_height)
+                    - res.getDimensionPixelSize(R.dimen.recipe_edge_height);
+            return new RecyclerView.ViewHolder(header) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.net.Uri;
+import android.util.Log;
+
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.Request;
+import com.squareup.picasso.RequestHandler;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okio.Buffer;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * Serves photos from the photo pack asset built by the tools module's PhotoPackBuilder,
+ * see there for the file layout.
+ *
+ * The pack is stored uncompressed in the APK and memory-mapped, so images are decoded
+ * straight from the mapped pages without being read into the heap first. Photo URLs that
+ * are not in the pack are left to Picasso's network handler.
+ */
+public class PhotoPackRequestHandler extends RequestHandler {
+
+    private static final String TAG = "PhotoPackRequestHandler";
+
+    public static final String PHOTO_PACK_ASSET = "photos.pack";
+
+    private static final int MAGIC = 0x52504B31;
+
+    private final ByteBuffer pack;
+    // offset and length of every image, keyed by URL
+    private final Map<String, long[]> index;
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * Maps the photo pack asset. Returns null if the app was built without one.
+     */
+    public static PhotoPackRequestHandler open(AssetManager assets, String assetName) throws IOException {
+        AssetFileDescriptor descriptor;
+        try {
+            descriptor = assets.openFd(assetName);
+        } catch (FileNotFoundException e) {
+            Log.i(TAG, "No photo pack " + assetName + ", photos load from the network");
+            return null;
+        }
+        try {
+            FileInputStream in = descriptor.createInputStream();
+            try {
+                // the mapping stays valid after the channel is closed
+                MappedByteBuffer pack = in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                        descriptor.getStartOffset(), descriptor.getLength());
+                return new PhotoPackRequestHandler(pack);
+            } finally {
+                in.close();
+            }
+        } finally {
+            descriptor.close();
+        }
+    }
+
+    public PhotoPackRequestHandler(ByteBuffer pack) throws IOException {
+        this.pack = pack;
+        ByteBuffer header = pack.duplicate();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a photo pack");
+        }
+        int count = header.getInt();
+        index = new HashMap<String, long[]>(count * 2);
+        for (int i = 0; i < count; i++) {
+            byte[] url = new byte[header.getInt()];
+            header.get(url);
+            long offset = header.getLong();
+            int length = header.getInt();
+            if (offset < 0 || offset + length > pack.limit()) {
+                throw new IOException("Photo pack entry out of bounds");
+            }
+            index.put(new String(url, "UTF-8"), new long[]{offset, length});
+        }
+    }
+
+    @Override
+    public boolean canHandleRequest(Request data) {
+        Uri uri = data.uri;
+        return uri != null && index.containsKey(uri.toString());
+    }
+
+    @Override
+    public Result load(Request request, int networkPolicy) throws IOException {
+        long[] entry = index.get(request.uri.toString());
+        ByteBuffer image = pack.duplicate();
+        image.position((int) entry[0]);
+        image.limit((int) (entry[0] + entry[1]));
+        hitCount.incrementAndGet();
+        return new Result(new ByteBufferSource(image.slice()), Picasso.LoadedFrom.DISK);
+    }
+
+    public int getPhotoCount() {
+        return index.size();
+    }
+
+    /**
+     * Returns the number of photos served from the pack.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Streams a buffer to the decoder without copying it into a byte array.
+     */
+    private static class ByteBufferSource implements Source {
+        private final ByteBuffer buffer;
+
+        ByteBufferSource(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = (int) Math.min(buffer.remaining(), byteCount);
+            ByteBuffer chunk = buffer.duplicate();
+            chunk.limit(chunk.position() + count);
+            sink.write(chunk);
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -17,10 +17,14 @@
 package com.sopan.app_link;
 
 import android.database.Cursor;
+import android.os.Parcel;
+import android.os.Parcelable;
 
 import com.sopan.app_link.database.FoodIngredientTable;
 import com.sopan.app_link.database.FoodInstructionsTable;
+import com.sopan.app_link.database.FoodRecipeFullTable;
 import com.sopan.app_link.database.FoodTable;
+import com.sopan.app_link.database.IngredientParser;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -28,8 +32,13 @@ import java.util.List;
 /**
  * The {@link Recipe} class stores all the information about a recipe including a
  * list of ingredients and all the steps required to prepare it.
+ *
+ * Recipes are {@link Parcelable} so a screen can keep the one it shows across process
+ * death. The parcel holds the fields in a fixed order with the ingredients and steps
+ * written inline, without per-item class names. Strings go through Parcel#writeString,
+ * which marks nulls with a length of -1.
  */
-public class Recipe {
+public class Recipe implements Parcelable {
 
     public static final String URL_BASE = "http://recipe-app.com/recipe/";
 
@@ -46,6 +55,58 @@ public class Recipe {
         this.id = id;
     }
 
+    private Recipe(Parcel in) {
+        id = in.readString();
+        title = in.readString();
+        photo = in.readString();
+        description = in.readString();
+        prepTime = in.readString();
+        int ingredientCount = in.readInt();
+        ingredients = new ArrayList<Ingredient>(ingredientCount);
+        for (int i = 0; i < ingredientCount; i++) {
+            ingredients.add(new Ingredient(in));
+        }
+        int stepCount = in.readInt();
+        instructions = new ArrayList<Step>(stepCount);
+        for (int i = 0; i < stepCount; i++) {
+            instructions.add(new Step(in));
+        }
+    }
+
+    public static final Creator<Recipe> CREATOR = new Creator<Recipe>() {
+        @Override
+        public Recipe createFromParcel(Parcel in) {
+            return new Recipe(in);
+        }
+
+        @Override
+        public Recipe[] newArray(int size) {
+            return new Recipe[size];
+        }
+    };
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeString(id);
+        dest.writeString(title);
+        dest.writeString(photo);
+        dest.writeString(description);
+        dest.writeString(prepTime);
+        dest.writeInt(ingredients.size());
+        for (Ingredient ingredient : ingredients) {
+            ingredient.writeToParcel(dest, flags);
+        }
+        dest.writeInt(instructions.size());
+        for (Step step : instructions) {
+            step.writeToParcel(dest, flags);
+        }
+    }
+
     public String getId() {
         return id;
     }
@@ -109,27 +170,231 @@ public class Recipe {
      * @return A new {@link Recipe} object with the basic attributes populated.
      */
     public static Recipe fromCursor(Cursor cursor) {
-        Recipe recipe = new Recipe(null);
-        for (int c=0; c<cursor.getColumnCount(); c++) {
-            String columnName = cursor.getColumnName(c);
-            if (columnName.equals(FoodTable.ID_COLUMN)) {
-                recipe.id = cursor.getString(c);
-            } else if (columnName.equals(FoodTable.TITLE_COLUMN)) {
-                recipe.setTitle(cursor.getString(c));
-            } else if (columnName.equals(FoodTable.DESCRIPTION_COLUMN)) {
-                recipe.setDescription(cursor.getString(c));
-            } else if (columnName.equals(FoodTable.PHOTO_COLUMN)) {
-                recipe.setPhoto(cursor.getString(c));
-            } else if (columnName.equals(FoodTable.PREP_TIME_COLUMN)) {
-                recipe.setPrepTime(cursor.getString(c));
+        return new Mapper(cursor).map(cursor);
+    }
+
+    /**
+     * Reads recipe rows by column position. The positions are looked up once from the
+     * cursor's column names, so mapping a row does no string comparisons. Columns that are
+     * missing from the projection are left unset.
+     */
+    public static class Mapper {
+        private final int idIndex;
+        private final int titleIndex;
+        private final int descriptionIndex;
+        private final int photoIndex;
+        private final int prepTimeIndex;
+
+        public Mapper(Cursor cursor) {
+            idIndex = cursor.getColumnIndex(FoodTable.ID_COLUMN);
+            titleIndex = cursor.getColumnIndex(FoodTable.TITLE_COLUMN);
+            descriptionIndex = cursor.getColumnIndex(FoodTable.DESCRIPTION_COLUMN);
+            photoIndex = cursor.getColumnIndex(FoodTable.PHOTO_COLUMN);
+            prepTimeIndex = cursor.getColumnIndex(FoodTable.PREP_TIME_COLUMN);
+        }
+
+        /**
+         * Maps the row the cursor is currently positioned on.
+         */
+        public Recipe map(Cursor cursor) {
+            Recipe recipe = new Recipe(getString(cursor, idIndex));
+            recipe.setTitle(getString(cursor, titleIndex));
+            recipe.setDescription(getString(cursor, descriptionIndex));
+            recipe.setPhoto(getString(cursor, photoIndex));
+            recipe.setPrepTime(getString(cursor, prepTimeIndex));
+            return recipe;
+        }
+    }
+
+    private static String getString(Cursor cursor, int columnIndex) {
+        return columnIndex == -1 ? null : cursor.getString(columnIndex);
+    }
+
+    /**
+     * Static helper method for building a complete recipe from the aggregate cursor returned
+     * by the recipe/full/&lt;id&gt; URI.
+     *
+     * @param cursor The cursor returned from the aggregate recipe query.
+     * @return A new {@link Recipe} object with its ingredients and steps, or null if the
+     * cursor holds no recipe row.
+     */
+    public static Recipe fromFullCursor(Cursor cursor) {
+        FullMapper mapper = new FullMapper(cursor);
+        Recipe recipe = null;
+        while (cursor.moveToNext()) {
+            if (mapper.isHeader(cursor)) {
+                recipe = mapper.mapHeader(cursor);
+            } else if (recipe == null) {
+                // the header row always sorts first, so a missing one means no such recipe
+                return null;
+            } else {
+                mapper.addChild(cursor, recipe);
             }
         }
         return recipe;
     }
 
-    public static class Ingredient {
+    /**
+     * Maps the cursor of the recipe/batch URI, where every header row starts the next recipe,
+     * to the recipes in cursor order.
+     */
+    public static List<Recipe> listFromFullCursor(Cursor cursor) {
+        FullMapper mapper = new FullMapper(cursor);
+        List<Recipe> recipes = new ArrayList<Recipe>();
+        Recipe recipe = null;
+        while (cursor.moveToNext()) {
+            if (mapper.isHeader(cursor)) {
+                recipe = mapper.mapHeader(cursor);
+                recipes.add(recipe);
+            } else if (recipe != null) {
+                mapper.addChild(cursor, recipe);
+            }
+        }
+        return recipes;
+    }
+
+    /**
+     * Reads the rows of {@link FoodRecipeFullTable} by column position, resolved once per
+     * cursor.
+     */
+    private static class FullMapper {
+        private final int rowTypeIndex;
+        private final int idIndex;
+        private final int titleIndex;
+        private final int descriptionIndex;
+        private final int prepTimeIndex;
+        private final int photoIndex;
+        private final int amountIndex;
+        // absent from cursors made before the parsed columns were returned
+        private final int quantityIndex;
+        private final int unitIndex;
+        private final int ingredientIdIndex;
+        private final int ingredientNameIndex;
+
+        FullMapper(Cursor cursor) {
+            rowTypeIndex = cursor.getColumnIndexOrThrow(FoodRecipeFullTable.ROW_TYPE_COLUMN);
+            idIndex = cursor.getColumnIndexOrThrow(FoodRecipeFullTable.ID_COLUMN);
+            titleIndex = cursor.getColumnIndexOrThrow(FoodRecipeFullTable.TITLE_COLUMN);
+            descriptionIndex = cursor.getColumnIndexOrThrow(FoodRecipeFullTable.DESCRIPTION_COLUMN);
+            prepTimeIndex = cursor.getColumnIndexOrThrow(FoodRecipeFullTable.PREP_TIME_COLUMN);
+            photoIndex = cursor.getColumnIndexOrThrow(FoodRecipeFullTable.PHOTO_COLUMN);
+            amountIndex = cursor.getColumnIndexOrThrow(FoodRecipeFullTable.AMOUNT_COLUMN);
+            quantityIndex = cursor.getColumnIndex(FoodRecipeFullTable.QUANTITY_COLUMN);
+            unitIndex = cursor.getColumnIndex(FoodRecipeFullTable.UNIT_COLUMN);
+            ingredientIdIndex = cursor.getColumnIndex(FoodRecipeFullTable.INGREDIENT_ID_COLUMN);
+            ingredientNameIndex = cursor.getColumnIndex(FoodRecipeFullTable.INGREDIENT_NAME_COLUMN);
+        }
+
+        boolean isHeader(Cursor cursor) {
+            return cursor.getInt(rowTypeIndex) == FoodRecipeFullTable.ROW_TYPE_RECIPE;
+        }
+
+        Recipe mapHeader(Cursor cursor) {
+            Recipe recipe = new Recipe(cursor.getString(idIndex));
+            recipe.setTitle(cursor.getString(titleIndex));
+            recipe.setDescription(cursor.getString(descriptionIndex));
+            recipe.setPrepTime(cursor.getString(prepTimeIndex));
+            recipe.setPhoto(cursor.getString(photoIndex));
+            return recipe;
+        }
+
+        /**
+         * Adds the ingredient or step on the current row to the recipe it belongs to.
+         */
+        void addChild(Cursor cursor, Recipe recipe) {
+            int rowType = cursor.getInt(rowTypeIndex);
+            if (rowType == FoodRecipeFullTable.ROW_TYPE_INGREDIENT) {
+                Ingredient ingredient = new Ingredient();
+                ingredient.setId(cursor.getLong(idIndex));
+                ingredient.setAmount(cursor.getString(amountIndex));
+                ingredient.setDescription(cursor.getString(descriptionIndex));
+                if (quantityIndex != -1 && unitIndex != -1 && ingredientIdIndex != -1 && ingredientNameIndex != -1) {
+                    ingredient.setParsedColumns(
+                            cursor.isNull(quantityIndex) ? Double.NaN : cursor.getDouble(quantityIndex),
+                            cursor.getString(unitIndex),
+                            cursor.isNull(ingredientIdIndex) ? Ingredient.NO_ID : cursor.getLong(ingredientIdIndex),
+                            cursor.getString(ingredientNameIndex));
+                }
+                recipe.addIngredient(ingredient);
+            } else if (rowType == FoodRecipeFullTable.ROW_TYPE_STEP) {
+                Step step = new Step();
+                step.setDescription(cursor.getString(descriptionIndex));
+                step.setPhoto(cursor.getString(photoIndex));
+                recipe.addStep(step);
+            }
+        }
+    }
+
+    public static class Ingredient implements Parcelable {
+        public static final long NO_ID = -1;
+
+        private long id = NO_ID;
         private String amount;
         private String description;
+        // the quantity, unit and dictionary columns, if the ingredient was loaded with them
+        private boolean hasParsedColumns;
+        private double quantity = Double.NaN;
+        private String unit;
+        private long ingredientId = NO_ID;
+        private String name;
+
+        public Ingredient() {
+        }
+
+        private Ingredient(Parcel in) {
+            id = in.readLong();
+            amount = in.readString();
+            description = in.readString();
+            hasParsedColumns = in.readInt() != 0;
+            if (hasParsedColumns) {
+                quantity = in.readDouble();
+                unit = in.readString();
+                ingredientId = in.readLong();
+                name = in.readString();
+            }
+        }
+
+        public static final Creator<Ingredient> CREATOR = new Creator<Ingredient>() {
+            @Override
+            public Ingredient createFromParcel(Parcel in) {
+                return new Ingredient(in);
+            }
+
+            @Override
+            public Ingredient[] newArray(int size) {
+                return new Ingredient[size];
+            }
+        };
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeLong(id);
+            dest.writeString(amount);
+            dest.writeString(description);
+            dest.writeInt(hasParsedColumns ? 1 : 0);
+            if (hasParsedColumns) {
+                dest.writeDouble(quantity);
+                dest.writeString(unit);
+                dest.writeLong(ingredientId);
+                dest.writeString(name);
+            }
+        }
+
+        /**
+         * Returns the row id of the ingredient, or {@link #NO_ID} if it was not queried.
+         */
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
 
         public String getAmount() {
             return amount;
@@ -147,6 +412,52 @@ public class Recipe {
             this.description = description;
         }
 
+        /**
+         * Sets the values stored in the quantity, unit and ingredient_id columns, and the
+         * dictionary name ingredient_id points to.
+         */
+        public void setParsedColumns(double quantity, String unit, long ingredientId, String name) {
+            hasParsedColumns = true;
+            this.quantity = quantity;
+            this.unit = unit;
+            this.ingredientId = ingredientId;
+            this.name = name;
+        }
+
+        /**
+         * Returns the quantity the amount starts with, like 1.5 for "1 1/2 lbs", or NaN if it
+         * has none. This is the stored quantity column; ingredients loaded without it, like
+         * those of the flat catalog, parse the amount the same way.
+         */
+        public double getQuantity() {
+            return hasParsedColumns ? quantity : IngredientParser.parseQuantity(amount);
+        }
+
+        /**
+         * Returns the unit of the amount, like "lbs" for "1 1/2 lbs", or null if it has none.
+         * Stored or parsed like {@link #getQuantity}.
+         */
+        public String getUnit() {
+            return hasParsedColumns ? unit : IngredientParser.parseUnit(amount);
+        }
+
+        /**
+         * Returns the id of the ingredient's dictionary entry, or {@link #NO_ID} if it has none
+         * or was loaded without it.
+         */
+        public long getIngredientId() {
+            return hasParsedColumns ? ingredientId : NO_ID;
+        }
+
+        /**
+         * Returns the name the ingredient is known by in the ingredient dictionary, the one to
+         * pass to recipe/containing, or null if it has no description. Stored or parsed like
+         * {@link #getQuantity}.
+         */
+        public String getName() {
+            return hasParsedColumns ? name : IngredientParser.normalizeName(description);
+        }
+
         /**
          * Static helper method for populating attributes from a database cursor.
          *
@@ -154,23 +465,86 @@ public class Recipe {
          * @return A new {@link Recipe.Ingredient} object with all attributes populated.
          */
         public static Ingredient fromCursor(Cursor cursor) {
-            Ingredient ingredient = new Ingredient();
-            for (int c=0; c<cursor.getColumnCount(); c++) {
-                String columnName = cursor.getColumnName(c);
-                if (columnName.equals(FoodIngredientTable.AMOUNT_COLUMN)) {
-                    ingredient.setAmount(cursor.getString(c));
-                } else if (columnName.equals(FoodIngredientTable.DESCRIPTION_COLUMN)) {
-                    ingredient.setDescription(cursor.getString(c));
+            return new Mapper(cursor).map(cursor);
+        }
+
+        /**
+         * Maps every row of the cursor, from the first one, into a list of ingredients.
+         *
+         * @param cursor The cursor returned from an ingredients query.
+         * @return The ingredients in cursor order.
+         */
+        public static List<Ingredient> listFromCursor(Cursor cursor) {
+            Mapper mapper = new Mapper(cursor);
+            List<Ingredient> ingredients = new ArrayList<Ingredient>(cursor.getCount());
+            cursor.moveToPosition(-1);
+            while (cursor.moveToNext()) {
+                ingredients.add(mapper.map(cursor));
+            }
+            return ingredients;
+        }
+
+        /**
+         * Reads ingredient rows by column position, resolved once per cursor.
+         */
+        public static class Mapper {
+            private final int idIndex;
+            private final int amountIndex;
+            private final int descriptionIndex;
+
+            public Mapper(Cursor cursor) {
+                idIndex = cursor.getColumnIndex(FoodIngredientTable.ID_COLUMN);
+                amountIndex = cursor.getColumnIndex(FoodIngredientTable.AMOUNT_COLUMN);
+                descriptionIndex = cursor.getColumnIndex(FoodIngredientTable.DESCRIPTION_COLUMN);
+            }
+
+            public Ingredient map(Cursor cursor) {
+                Ingredient ingredient = new Ingredient();
+                if (idIndex != -1) {
+                    ingredient.setId(cursor.getLong(idIndex));
                 }
+                ingredient.setAmount(getString(cursor, amountIndex));
+                ingredient.setDescription(getString(cursor, descriptionIndex));
+                return ingredient;
             }
-            return ingredient;
         }
     }
 
-    public static class Step {
+    public static class Step implements Parcelable {
         private String description;
         private String photo;
 
+        public Step() {
+        }
+
+        private Step(Parcel in) {
+            description = in.readString();
+            photo = in.readString();
+        }
+
+        public static final Creator<Step> CREATOR = new Creator<Step>() {
+            @Override
+            public Step createFromParcel(Parcel in) {
+                return new Step(in);
+            }
+
+            @Override
+            public Step[] newArray(int size) {
+                return new Step[size];
+            }
+        };
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeString(description);
+            dest.writeString(photo);
+        }
+
         public String getDescription() {
             return description;
         }
@@ -194,16 +568,43 @@ public class Recipe {
          * @return A new {@link Recipe.Step} object with all attributes populated.
          */
         public static Step fromCursor(Cursor cursor) {
-            Step step = new Step();
-            for (int c=0; c<cursor.getColumnCount(); c++) {
-                String columnName = cursor.getColumnName(c);
-                if (columnName.equals(FoodInstructionsTable.PHOTO_COLUMN)) {
-                    step.setPhoto(cursor.getString(c));
-                } else if (columnName.equals(FoodInstructionsTable.DESCRIPTION_COLUMN)) {
-                    step.setDescription(cursor.getString(c));
-                }
+            return new Mapper(cursor).map(cursor);
+        }
+
+        /**
+         * Maps every row of the cursor, from the first one, into a list of steps.
+         *
+         * @param cursor The cursor returned from an instructions query.
+         * @return The steps in cursor order.
+         */
+        public static List<Step> listFromCursor(Cursor cursor) {
+            Mapper mapper = new Mapper(cursor);
+            List<Step> steps = new ArrayList<Step>(cursor.getCount());
+            cursor.moveToPosition(-1);
+            while (cursor.moveToNext()) {
+                steps.add(mapper.map(cursor));
+            }
+            return steps;
+        }
+
+        /**
+         * Reads step rows by column position, resolved once per cursor.
+         */
+        public static class Mapper {
+            private final int descriptionIndex;
+            private final int photoIndex;
+
+            public Mapper(Cursor cursor) {
+                descriptionIndex = cursor.getColumnIndex(FoodInstructionsTable.DESCRIPTION_COLUMN);
+                photoIndex = cursor.getColumnIndex(FoodInstructionsTable.PHOTO_COLUMN);
+            }
+
+            public Step map(Cursor cursor) {
+                Step step = new Step();
+                step.setDescription(getString(cursor, descriptionIndex));
+                step.setPhoto(getString(cursor, photoIndex));
+                return step;
             }
-            return step;
         }
     }
 
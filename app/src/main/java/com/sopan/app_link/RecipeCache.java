@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.util.LruCache;
+
+import com.sopan.app_link.content_provider.FoodContentProvider;
+import com.sopan.app_link.metrics.MetricsRegistry;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide LRU cache of fully loaded {@link Recipe} objects, keyed by recipe id.
+ *
+ * Entries are weighted by the number of rows they were built from, so a handful of very
+ * large recipes cannot crowd the cache beyond its limit. A recipe is dropped as soon as the
+ * provider sends a change notification for it, and everything is dropped on a notification
+ * for the whole catalog. Entries dropped that way count as invalidations, not evictions.
+ *
+ * Hits, misses, evictions and invalidations are also counted in {@link MetricsRegistry}
+ * under recipe_cache.*, so the provider's metrics and dumpsys output include them.
+ */
+public class RecipeCache {
+
+    private static final AtomicLong sHits = MetricsRegistry.getInstance().counter("recipe_cache.hits");
+    private static final AtomicLong sMisses = MetricsRegistry.getInstance().counter("recipe_cache.misses");
+    private static final AtomicLong sEvictions = MetricsRegistry.getInstance().counter("recipe_cache.evictions");
+    private static final AtomicLong sInvalidations =
+            MetricsRegistry.getInstance().counter("recipe_cache.invalidations");
+
+    private static RecipeCache sInstance;
+
+    private final LruCache<String, Recipe> cache;
+    private volatile long generation;
+    private int invalidationCount;
+
+    public static synchronized RecipeCache getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new RecipeCache(appContext.getResources().getInteger(R.integer.recipe_cache_max_weight));
+            appContext.getContentResolver().registerContentObserver(
+                    FoodContentProvider.CONTENT_URI, true, sInstance.new InvalidationObserver());
+        }
+        return sInstance;
+    }
+
+    public RecipeCache(int maxWeight) {
+        cache = new LruCache<String, Recipe>(maxWeight) {
+            @Override
+            protected int sizeOf(String key, Recipe recipe) {
+                return 1 + recipe.getIngredients().size() + recipe.getInstructions().size();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Recipe oldValue, Recipe newValue) {
+                if (evicted) {
+                    sEvictions.incrementAndGet();
+                }
+            }
+        };
+    }
+
+    public Recipe get(String recipeId) {
+        Recipe recipe = cache.get(recipeId);
+        if (recipe != null) {
+            sHits.incrementAndGet();
+        } else {
+            sMisses.incrementAndGet();
+        }
+        return recipe;
+    }
+
+    /**
+     * Returns a token to pass to {@link #put} for a recipe that is about to be loaded.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Caches a loaded recipe, unless an invalidation arrived after the given generation was
+     * read, in which case the recipe may already be stale and is not kept.
+     */
+    public synchronized void put(Recipe recipe, long loadGeneration) {
+        if (loadGeneration == generation) {
+            cache.put(recipe.getId(), recipe);
+        }
+    }
+
+    public synchronized void invalidate(String recipeId) {
+        generation++;
+        remove(recipeId);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        // evictAll() would count every entry as an eviction
+        for (String recipeId : cache.snapshot().keySet()) {
+            remove(recipeId);
+        }
+    }
+
+    private void remove(String recipeId) {
+        if (cache.remove(recipeId) != null) {
+            invalidationCount++;
+            sInvalidations.incrementAndGet();
+        }
+    }
+
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    public int getMissCount() {
+        return cache.missCount();
+    }
+
+    public int getEvictionCount() {
+        return cache.evictionCount();
+    }
+
+    public synchronized int getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    @Override
+    public String toString() {
+        return cache.toString();
+    }
+
+    private class InvalidationObserver extends ContentObserver {
+
+        InvalidationObserver() {
+            super(null);
+        }
+
+        @Override
+        public void onChange(boolean selfChange) {
+            onChange(selfChange, null);
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            // recipe/<id> and recipe/<kind>/<id> name one recipe; anything else is the catalog
+            List<String> segments = uri != null ? uri.getPathSegments() : null;
+            if (segments != null && segments.size() >= 2) {
+                invalidate(uri.getLastPathSegment());
+            } else {
+                invalidateAll();
+            }
+        }
+    }
+}
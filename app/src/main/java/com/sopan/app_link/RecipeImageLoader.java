@@ -0,0 +1,213 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.Log;
+import android.widget.ImageView;
+
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.LruCache;
+import com.squareup.picasso.OkHttp3Downloader;
+import com.squareup.picasso.Picasso;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Cache;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+/**
+ * Loads recipe and step photos with bounded caches.
+ *
+ * Photos are decoded at the size of the view they are shown in rather than at full
+ * resolution. Decoded bitmaps are kept in a memory cache limited in bytes, and downloads in
+ * a size-limited disk cache. Photos for pages that are not on screen yet can be fetched
+ * ahead of time with {@link #prefetch}. Photos in the bundled photo pack are never
+ * downloaded.
+ *
+ * Setting up the disk cache and reading the photo pack index touch the disk, so screens
+ * call {@link #preload} early and use {@link #peekInstance} where a photo is optional.
+ */
+public class RecipeImageLoader {
+
+    private static final String TAG = "RecipeImageLoader";
+
+    private static final String DISK_CACHE_DIR = "recipe-images";
+
+    private static RecipeImageLoader sInstance;
+    private static boolean sPreloading;
+
+    private final OkHttpClient client;
+    private final Picasso picasso;
+    private final PhotoPackRequestHandler photoPack;
+    private final AtomicLong networkRequests = new AtomicLong();
+    private final AtomicLong networkBytes = new AtomicLong();
+
+    /**
+     * Returns the shared loader, creating it on the calling thread if {@link #preload} has
+     * not finished yet.
+     */
+    public static synchronized RecipeImageLoader getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            Resources resources = appContext.getResources();
+            long memoryCacheBytes = Math.min(
+                    resources.getInteger(R.integer.image_memory_cache_max_kb) * 1024L,
+                    Runtime.getRuntime().maxMemory() / 8);
+            long diskCacheBytes = resources.getInteger(R.integer.image_disk_cache_max_mb) * 1024L * 1024L;
+            OkHttpClient.Builder client = newClientBuilder(new File(appContext.getCacheDir(), DISK_CACHE_DIR),
+                    diskCacheBytes);
+            PhotoPackRequestHandler photoPack = null;
+            try {
+                photoPack = PhotoPackRequestHandler.open(appContext.getAssets(),
+                        PhotoPackRequestHandler.PHOTO_PACK_ASSET);
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot open the photo pack, photos load from the network", e);
+            }
+            sInstance = new RecipeImageLoader(appContext, client, (int) memoryCacheBytes, photoPack);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Creates the shared loader on a background thread, unless it exists or is being
+     * created already.
+     */
+    public static synchronized void preload(Context context) {
+        if (sInstance != null || sPreloading) {
+            return;
+        }
+        sPreloading = true;
+        final Context appContext = context.getApplicationContext();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                getInstance(appContext);
+            }
+        }, "recipe-image-loader-init");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    /**
+     * Returns the shared loader, or null while it is still being created.
+     */
+    public static synchronized RecipeImageLoader peekInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Returns an HTTP client builder with a disk cache of the given size in the given
+     * directory. OkHttp opens the cache on the first request, not here.
+     */
+    static OkHttpClient.Builder newClientBuilder(File cacheDirectory, long diskCacheBytes) {
+        return new OkHttpClient.Builder().cache(new Cache(cacheDirectory, diskCacheBytes));
+    }
+
+    /**
+     * @param clientBuilder The HTTP client to download with. Tests can point it at a local
+     *                      server, for example with an interceptor that rewrites the host.
+     * @param memoryCacheBytes The size limit of the decoded bitmap cache.
+     * @param photoPack Serves the photos bundled with the app, or null to download them all.
+     */
+    public RecipeImageLoader(Context context, OkHttpClient.Builder clientBuilder, int memoryCacheBytes,
+                             PhotoPackRequestHandler photoPack) {
+        client = clientBuilder.addNetworkInterceptor(new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                // network interceptors only see requests the disk cache could not answer
+                Response response = chain.proceed(chain.request());
+                networkRequests.incrementAndGet();
+                long length = response.body() != null ? response.body().contentLength() : -1;
+                if (length > 0) {
+                    networkBytes.addAndGet(length);
+                }
+                return response;
+            }
+        }).build();
+        Picasso.Builder builder = new Picasso.Builder(context)
+                .memoryCache(new LruCache(memoryCacheBytes))
+                .downloader(new OkHttp3Downloader(client));
+        if (photoPack != null) {
+            // extra handlers are asked before the network one
+            builder.addRequestHandler(photoPack);
+        }
+        picasso = builder.build();
+        this.photoPack = photoPack;
+    }
+
+    /**
+     * Loads a photo into the view, decoded at the view's measured size.
+     */
+    public void load(String url, ImageView target, Callback callback) {
+        picasso.load(url)
+                .fit()
+                .centerCrop()
+                .into(target, callback);
+    }
+
+    /**
+     * Downloads and decodes a photo into the memory cache without showing it. The size must
+     * match the view that will show it, or {@link #load} misses the cached bitmap.
+     */
+    public void prefetch(String url, int width, int height) {
+        if (url == null || width <= 0 || height <= 0) {
+            return;
+        }
+        picasso.load(url)
+                .resize(width, height)
+                .centerCrop()
+                .fetch();
+    }
+
+    /**
+     * Returns the client photos are downloaded with, behind the disk cache.
+     */
+    OkHttpClient getHttpClient() {
+        return client;
+    }
+
+    public Picasso getPicasso() {
+        return picasso;
+    }
+
+    /**
+     * Returns the photo pack bundled with the app, or null if there is none.
+     */
+    public PhotoPackRequestHandler getPhotoPack() {
+        return photoPack;
+    }
+
+    /**
+     * Returns the number of photo requests that went to the network.
+     */
+    public long getNetworkRequestCount() {
+        return networkRequests.get();
+    }
+
+    /**
+     * Returns the bytes downloaded from the network, as far as responses declared a length.
+     */
+    public long getNetworkBytes() {
+        return networkBytes.get();
+    }
+}
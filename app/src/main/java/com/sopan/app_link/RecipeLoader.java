@@ -0,0 +1,224 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import com.sopan.app_link.database.FlatRecipeStore;
+import com.sopan.app_link.metrics.LatencyHistogram;
+import com.sopan.app_link.metrics.MetricsRegistry;
+
+import androidx.core.os.TraceCompat;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a {@link Recipe} from the content provider on a background thread and hands the
+ * result back on the main thread. Starting a new load cancels the one still in flight, so
+ * only the latest deep link ever reaches the UI.
+ *
+ * With a {@link FlatRecipeStore}, recipes are read from the flat catalog first and only
+ * recipes missing from it are queried from the provider. The catalog is opened on the
+ * loader's thread by the first load that needs it.
+ */
+public class RecipeLoader {
+
+    private static final String TAG = "RecipeLoader";
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    private static final LatencyHistogram sLoadLatency = MetricsRegistry.getInstance().histogram("deeplink.load");
+    private static final LatencyHistogram sMapLatency = MetricsRegistry.getInstance().histogram("recipe.map_full");
+    private static final LatencyHistogram sFlatLatency = MetricsRegistry.getInstance().histogram("recipe.flat_lookup");
+
+    public interface Callback {
+        /**
+         * Called on the main thread with the loaded recipe, or null if there is no match.
+         */
+        void onRecipeLoaded(Uri recipeUri, Recipe recipe);
+    }
+
+    private final ContentResolver contentResolver;
+    private final RecipeCache recipeCache;
+    private final Context flatStoreContext;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private LoadTask currentTask;
+
+    public RecipeLoader(ContentResolver contentResolver, RecipeCache recipeCache) {
+        this(contentResolver, recipeCache, null);
+    }
+
+    /**
+     * @param flatStoreContext The context to open the bundled flat catalog with, to read
+     *                         recipes from it before the provider, or null to always query
+     *                         the provider.
+     */
+    public RecipeLoader(ContentResolver contentResolver, RecipeCache recipeCache, Context flatStoreContext) {
+        this.contentResolver = contentResolver;
+        this.recipeCache = recipeCache;
+        this.flatStoreContext = flatStoreContext != null ? flatStoreContext.getApplicationContext() : null;
+    }
+
+    /**
+     * Starts loading the recipe behind the given aggregate recipe URI, cancelling any load
+     * that is still running. A recipe that is already cached is delivered right away without
+     * touching the provider. Must be called on the main thread.
+     */
+    public void load(Uri recipeUri, Callback callback) {
+        cancel();
+        long startNanos = System.nanoTime();
+        Recipe cached = recipeCache.get(recipeUri.getLastPathSegment());
+        if (cached != null) {
+            deliver(recipeUri, cached, startNanos, callback);
+            return;
+        }
+        currentTask = new LoadTask(recipeUri, callback, startNanos);
+        sExecutor.execute(currentTask);
+    }
+
+    /**
+     * Cancels the load in flight, if any. Its callback will not be invoked.
+     */
+    public void cancel() {
+        if (currentTask != null) {
+            currentTask.cancel();
+            currentTask = null;
+        }
+    }
+
+    /**
+     * Returns the deep link load latencies, measured from {@link #load} to the result
+     * being delivered on the main thread.
+     */
+    public static LatencyHistogram getLoadLatency() {
+        return sLoadLatency;
+    }
+
+    private static void deliver(Uri recipeUri, Recipe recipe, long startNanos, Callback callback) {
+        long elapsed = System.nanoTime() - startNanos;
+        sLoadLatency.record(elapsed);
+        // runs on the main thread for every load; the percentiles sort every retained sample
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            long[] percentiles = sLoadLatency.getPercentiles(50, 99);
+            Log.d(TAG, "Loaded " + recipeUri + " in " + TimeUnit.NANOSECONDS.toMillis(elapsed)
+                    + " ms (p50=" + TimeUnit.NANOSECONDS.toMillis(percentiles[0])
+                    + " ms, p99=" + TimeUnit.NANOSECONDS.toMillis(percentiles[1]) + " ms)");
+        }
+        callback.onRecipeLoaded(recipeUri, recipe);
+    }
+
+    private class LoadTask implements Runnable {
+        private final Uri recipeUri;
+        private final Callback callback;
+        private final long startNanos;
+        private final CancellationSignal cancellationSignal = new CancellationSignal();
+        private volatile boolean cancelled;
+
+        LoadTask(Uri recipeUri, Callback callback, long startNanos) {
+            this.recipeUri = recipeUri;
+            this.callback = callback;
+            this.startNanos = startNanos;
+        }
+
+        void cancel() {
+            cancelled = true;
+            cancellationSignal.cancel();
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            long cacheGeneration = recipeCache.getGeneration();
+            Recipe recipe = null;
+            FlatRecipeStore flatStore = flatStoreContext != null ? FlatRecipeStore.getInstance(flatStoreContext) : null;
+            if (flatStore != null) {
+                long lookupStart = System.nanoTime();
+                TraceCompat.beginSection("FlatRecipeStore.getRecipe");
+                try {
+                    recipe = flatStore.getRecipe(recipeUri.getLastPathSegment());
+                } finally {
+                    TraceCompat.endSection();
+                }
+                sFlatLatency.record(System.nanoTime() - lookupStart);
+            }
+            if (recipe == null) {
+                recipe = queryRecipe();
+                if (cancelled) {
+                    return;
+                }
+            }
+
+            if (recipe != null) {
+                recipeCache.put(recipe, cacheGeneration);
+            }
+
+            final Recipe result = recipe;
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (cancelled) {
+                        return;
+                    }
+                    currentTask = null;
+                    deliver(recipeUri, result, startNanos, callback);
+                }
+            });
+        }
+
+        /**
+         * Queries the recipe from the provider. Returns null if there is no such recipe or
+         * the load was cancelled.
+         */
+        private Recipe queryRecipe() {
+            Recipe recipe = null;
+            try {
+                Cursor cursor = contentResolver.query(recipeUri, null, null, null, null, cancellationSignal);
+                if (cursor != null) {
+                    try {
+                        // run the query first so only the mapping itself is timed
+                        cursor.getCount();
+                        long mapStart = System.nanoTime();
+                        TraceCompat.beginSection("Recipe.fromFullCursor");
+                        try {
+                            recipe = Recipe.fromFullCursor(cursor);
+                        } finally {
+                            TraceCompat.endSection();
+                        }
+                        sMapLatency.record(System.nanoTime() - mapStart);
+                    } finally {
+                        // always close the cursor
+                        cursor.close();
+                    }
+                }
+            } catch (OperationCanceledException e) {
+                return null;
+            }
+            return recipe;
+        }
+    }
+}
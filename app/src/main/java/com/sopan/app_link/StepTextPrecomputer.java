@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link;
+
+import android.text.Spanned;
+import android.widget.TextView;
+
+import com.sopan.app_link.metrics.LatencyHistogram;
+import com.sopan.app_link.metrics.MetricsRegistry;
+
+import androidx.core.os.TraceCompat;
+import androidx.core.text.HtmlCompat;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Converts the HTML of a recipe's step descriptions to styled text and measures it on a
+ * background thread, so a step page only has to draw text that is already laid out.
+ *
+ * Text measured with one set of params cannot be set on a view with other params, so
+ * nothing is measured until the first step page binds its TextView. The params are taken
+ * from that view, and all steps are queued then, the requested one first. The results are
+ * kept for as long as the recipe is shown, so paging back and forth never measures text
+ * twice. A view whose params differ, for example after a configuration change, has the
+ * steps measured again for it. The results are kept per params, and a future that was
+ * handed to a view is never cancelled, because the view throws when it consumes a
+ * cancelled one; only steps that are still queued and that no view holds are dropped.
+ */
+public class StepTextPrecomputer {
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    private static final LatencyHistogram sPrecomputeLatency =
+            MetricsRegistry.getInstance().histogram("recipe.step_text");
+
+    private final List<String> descriptions;
+    private final Map<PrecomputedTextCompat.Params, List<Future<PrecomputedTextCompat>>> stepTexts =
+            new HashMap<>();
+    private final Set<Future<PrecomputedTextCompat>> handedOut = new HashSet<>();
+
+    public StepTextPrecomputer(Recipe recipe) {
+        List<Recipe.Step> steps = recipe.getInstructions();
+        descriptions = new ArrayList<>(steps.size());
+        for (Recipe.Step step : steps) {
+            descriptions.add(step.getDescription());
+        }
+    }
+
+    /**
+     * Returns the text of the step at the given index, measured for the given view, which may
+     * still be being computed. Must be called on the main thread.
+     */
+    public Future<PrecomputedTextCompat> getStepText(int index, TextView textView) {
+        PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(textView);
+        List<Future<PrecomputedTextCompat>> texts = stepTexts.get(params);
+        if (texts == null) {
+            // steps still queued for other params are not going to be shown
+            cancel();
+            texts = new ArrayList<>(Collections.<Future<PrecomputedTextCompat>>nCopies(descriptions.size(), null));
+            stepTexts.put(params, texts);
+            submit(texts, index, params);
+            for (int i = 0; i < descriptions.size(); i++) {
+                if (i != index) {
+                    submit(texts, i, params);
+                }
+            }
+        } else if (texts.get(index) == null) {
+            submit(texts, index, params);
+        }
+        Future<PrecomputedTextCompat> stepText = texts.get(index);
+        handedOut.add(stepText);
+        return stepText;
+    }
+
+    private void submit(List<Future<PrecomputedTextCompat>> texts, int index,
+            final PrecomputedTextCompat.Params stepParams) {
+        final String description = descriptions.get(index);
+        texts.set(index, sExecutor.submit(new Callable<PrecomputedTextCompat>() {
+            @Override
+            public PrecomputedTextCompat call() {
+                long start = System.nanoTime();
+                TraceCompat.beginSection("StepTextPrecomputer.precompute");
+                try {
+                    return PrecomputedTextCompat.create(fromHtml(description), stepParams);
+                } finally {
+                    TraceCompat.endSection();
+                    sPrecomputeLatency.record(System.nanoTime() - start);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Drops the steps that have not been computed yet and that no view has been given, for
+     * when the recipe is no longer shown. Must be called on the main thread.
+     */
+    public void cancel() {
+        for (List<Future<PrecomputedTextCompat>> texts : stepTexts.values()) {
+            for (int i = 0; i < texts.size(); i++) {
+                Future<PrecomputedTextCompat> stepText = texts.get(i);
+                if (stepText != null && !handedOut.contains(stepText) && stepText.cancel(false)) {
+                    texts.set(i, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a description that may contain HTML, such as &lt;br/&gt; line breaks, to
+     * styled text.
+     */
+    static Spanned fromHtml(String description) {
+        return HtmlCompat.fromHtml(description != null ? description : "", HtmlCompat.FROM_HTML_MODE_LEGACY);
+    }
+}
@@ -17,32 +17,96 @@
 package com.sopan.app_link.content_provider;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
 import android.content.ContentValues;
-import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.SparseArray;
 
-import com.readystatesoftware.sqliteasset.SQLiteAssetHelper;
+import com.sopan.app_link.R;
+import com.sopan.app_link.database.CatalogImporter;
+import com.sopan.app_link.database.DatabasePrewarmer;
 import com.sopan.app_link.database.FoodIngredientTable;
 import com.sopan.app_link.database.FoodInstructionsTable;
+import com.sopan.app_link.database.FoodRecipeFullTable;
 import com.sopan.app_link.database.FoodTable;
+import com.sopan.app_link.database.IngredientDictionary;
+import com.sopan.app_link.database.IngredientParser;
+import com.sopan.app_link.database.PrepTimeParser;
+import com.sopan.app_link.database.RecipeBatchBuilder;
+import com.sopan.app_link.database.RecipeDatabaseHelper;
+import com.sopan.app_link.database.RecipeIdFilter;
+import com.sopan.app_link.database.RecipeSearchIndex;
+import com.sopan.app_link.database.RecipeStatements;
+import com.sopan.app_link.database.SearchRanker;
+import com.sopan.app_link.metrics.MetricsRegistry;
+import com.sopan.app_link.metrics.QueryMetrics;
+
+import androidx.core.os.TraceCompat;
+
+import java.io.BufferedInputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Created by Sopan on 10/21/14.
  */
 public class FoodContentProvider extends ContentProvider {
 
+    private static final String TAG = "FoodContentProvider";
+
     // database
     private RecipeDatabaseHelper database;
+    private DatabasePrewarmer prewarmer;
+
+    // fixed SQL per URI type, shared by every query of that type
+    private final StatementCache statements = new StatementCache(new StatementCache.Builder() {
+        @Override
+        public String build(int uriType) {
+            return buildStatement(uriType);
+        }
+    });
 
     // used for the UriMacher
     private static final int RECIPES = 10;
     private static final int RECIPE_ID = 20;
     private static final int RECIPE_INGREDIENTS = 30;
     private static final int RECIPE_INSTRUCTIONS = 40;
+    private static final int RECIPE_FULL = 50;
+    private static final int RECIPE_SEARCH = 60;
+    private static final int RECIPE_BATCH = 70;
+
+    // statements of the recipe/batch URI, cached like those of the URI types
+    private static final int BATCH_RECIPES_STATEMENT = 71;
+    private static final int BATCH_INGREDIENTS_STATEMENT = 72;
+    private static final int BATCH_STEPS_STATEMENT = 73;
+    // statements of recipe/containing are cached under RECIPE_CONTAINING + the ingredient count
+    private static final int RECIPE_CONTAINING = 80;
 
     private static final String AUTHORITY = "com.sopan.app_link";
 
@@ -50,107 +114,1028 @@ public class FoodContentProvider extends ContentProvider {
     public static final Uri CONTENT_URI = Uri.parse("content://" + AUTHORITY
             + "/" + BASE_PATH);
 
+    // query parameters of the recipe list
+    public static final String PARAM_LIMIT = "limit";
+    public static final String PARAM_AFTER_TITLE = "after_title";
+    public static final String PARAM_AFTER_ID = "after_id";
+    public static final String PARAM_MIN_PREP_TIME = "min_prep_time";
+    public static final String PARAM_MAX_PREP_TIME = "max_prep_time";
+    public static final String DEFAULT_SORT_ORDER = FoodTable.TITLE + ", " + FoodTable.ID;
+    public static final String SORT_BY_PREP_TIME = FoodTable.PREP_TIME_MINUTES + ", " + FoodTable.TITLE + ", "
+            + FoodTable.ID;
+
+    // query parameters of recipe search
+    public static final String PARAM_QUERY = "q";
+    public static final String PARAM_OFFSET = "offset";
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final String[] SEARCH_COLUMNS = {FoodTable.ID_COLUMN, FoodTable.TITLE_COLUMN,
+            FoodTable.PREP_TIME_COLUMN, FoodTable.PHOTO_COLUMN};
+
+    // query parameters of the recipe batch
+    public static final String PARAM_ID = "id";
+    public static final String PARAM_INCLUDE = "include";
+    public static final String INCLUDE_INGREDIENTS = "ingredients";
+    public static final String INCLUDE_STEPS = "steps";
+    private static final int MAX_BATCH_SIZE = 500;
+
+    // query parameters of recipe/containing, which also takes PARAM_LIMIT and PARAM_OFFSET
+    public static final String PARAM_INGREDIENT = "ingredient";
+    private static final int MAX_CONTAINING_INGREDIENTS = 8;
+
+    // call() methods
+    public static final String METHOD_GET_STATEMENT_CACHE_STATS = "getStatementCacheStats";
+    public static final String KEY_STATEMENT_COUNT = "statement_count";
+    public static final String KEY_MAX_SQL_CACHE_SIZE = "max_sql_cache_size";
+    public static final String KEY_STATEMENT_HIT_COUNT = "statement_hit_count";
+    public static final String KEY_STATEMENT_MISS_COUNT = "statement_miss_count";
+    public static final String METHOD_IMPORT_CATALOG = "importCatalog";
+    public static final String KEY_RECIPES_INSERTED = "recipes_inserted";
+    public static final String KEY_RECIPES_UPDATED = "recipes_updated";
+    public static final String KEY_RECIPES_SKIPPED = "recipes_skipped";
+    public static final String KEY_ROWS_WRITTEN = "rows_written";
+    public static final String KEY_ROWS_PER_SECOND = "rows_per_second";
+    public static final String METHOD_MIGHT_CONTAIN_RECIPE = "mightContainRecipe";
+    public static final String KEY_MIGHT_CONTAIN = "might_contain";
+    public static final String METHOD_GET_RECIPE_ID_FILTER_STATS = "getRecipeIdFilterStats";
+    public static final String KEY_BIT_COUNT = "bit_count";
+    public static final String KEY_HASH_COUNT = "hash_count";
+    public static final String KEY_ID_COUNT = "id_count";
+    public static final String KEY_EXPECTED_FALSE_POSITIVE_RATE = "expected_false_positive_rate";
+    public static final String KEY_OBSERVED_FALSE_POSITIVE_RATE = "observed_false_positive_rate";
+
+    public static final String METHOD_GET_METRICS = "getMetrics";
+
+    // metrics of every URI type, named provider.query.<type>
+    private static final SparseArray<QueryMetrics> sQueryMetrics = new SparseArray<QueryMetrics>();
+    static {
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        sQueryMetrics.put(RECIPES, new QueryMetrics(registry, "provider.query.recipes"));
+        sQueryMetrics.put(RECIPE_ID, new QueryMetrics(registry, "provider.query.recipe"));
+        sQueryMetrics.put(RECIPE_INGREDIENTS, new QueryMetrics(registry, "provider.query.ingredients"));
+        sQueryMetrics.put(RECIPE_INSTRUCTIONS, new QueryMetrics(registry, "provider.query.instructions"));
+        sQueryMetrics.put(RECIPE_FULL, new QueryMetrics(registry, "provider.query.full"));
+        sQueryMetrics.put(RECIPE_SEARCH, new QueryMetrics(registry, "provider.query.search"));
+        sQueryMetrics.put(RECIPE_BATCH, new QueryMetrics(registry, "provider.query.batch"));
+        sQueryMetrics.put(RECIPE_CONTAINING, new QueryMetrics(registry, "provider.query.containing"));
+    }
+
     private static final UriMatcher sURIMatcher = new UriMatcher(UriMatcher.NO_MATCH);
     static {
         sURIMatcher.addURI(AUTHORITY, BASE_PATH, RECIPES);
         sURIMatcher.addURI(AUTHORITY, BASE_PATH + "/ingredients/*", RECIPE_INGREDIENTS);
         sURIMatcher.addURI(AUTHORITY, BASE_PATH + "/instructions/*", RECIPE_INSTRUCTIONS);
+        sURIMatcher.addURI(AUTHORITY, BASE_PATH + "/full/*", RECIPE_FULL);
+        sURIMatcher.addURI(AUTHORITY, BASE_PATH + "/search", RECIPE_SEARCH);
+        sURIMatcher.addURI(AUTHORITY, BASE_PATH + "/batch", RECIPE_BATCH);
+        sURIMatcher.addURI(AUTHORITY, BASE_PATH + "/containing", RECIPE_CONTAINING);
         sURIMatcher.addURI(AUTHORITY, BASE_PATH + "/*", RECIPE_ID);
     }
 
     @Override
     public boolean onCreate() {
         database = new RecipeDatabaseHelper(getContext());
+        database.setWriteAheadLoggingEnabled(
+                getContext().getResources().getBoolean(R.bool.recipe_database_write_ahead_logging));
+        database.setMaxSqlCacheSize(getContext().getResources().getInteger(R.integer.recipe_database_sql_cache_size));
+        if (getContext().getResources().getBoolean(R.bool.prewarm_recipe_database)) {
+            prewarmer = new DatabasePrewarmer(getContext(), database);
+            prewarmer.start();
+        }
         return false;
     }
 
+    /**
+     * Returns a database for reading, after any pre-warm in progress has finished. In
+     * write-ahead logging mode its queries run on the database's reader connections, beside
+     * writes instead of waiting for them.
+     */
+    private SQLiteDatabase getReadableDatabase() {
+        if (prewarmer != null) {
+            prewarmer.await();
+        }
+        return database.getReadableDatabase();
+    }
+
+    /**
+     * Returns the database for writing, after any pre-warm in progress has finished.
+     */
+    private SQLiteDatabase getWritableDatabase() {
+        if (prewarmer != null) {
+            prewarmer.await();
+        }
+        return database.getWritableDatabase();
+    }
+
     @Override
     public Cursor query(Uri uri, String[] projection, String selection,
                         String[] selectionArgs, String sortOrder) {
+        return query(uri, projection, selection, selectionArgs, sortOrder, null);
+    }
+
+    /**
+     * Runs the query for the URI type. The result is wrapped in a {@link MeteredCursor} that
+     * records the query metrics of that type as it is read.
+     */
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection,
+                        String[] selectionArgs, String sortOrder,
+                        CancellationSignal cancellationSignal) {
 
         int uriType = sURIMatcher.match(uri);
+        QueryMetrics metrics = sQueryMetrics.get(uriType);
+        if (metrics == null) {
+            throw new IllegalArgumentException("Unknown URI: " + uri);
+        }
+        long startNanos = System.nanoTime();
+        TraceCompat.beginSection(metrics.name);
+        try {
+            Cursor cursor = runQuery(uriType, uri, projection, selection, selectionArgs, sortOrder,
+                    cancellationSignal);
+            return new MeteredCursor(cursor, metrics, startNanos);
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    private Cursor runQuery(int uriType, Uri uri, String[] projection, String selection,
+                            String[] selectionArgs, String sortOrder,
+                            CancellationSignal cancellationSignal) {
         if (uriType == RECIPES) {
+            return getRecipes(uri, projection, selection, selectionArgs, sortOrder, cancellationSignal);
         } else if (uriType == RECIPE_ID) {
-            return getRecipe(uri);
+            return getRecipe(uri, cancellationSignal);
         } else if (uriType == RECIPE_INGREDIENTS) {
-            return getIngredientsByRecipe(uri);
+            return getIngredientsByRecipe(uri, cancellationSignal);
         } else if (uriType == RECIPE_INSTRUCTIONS) {
-            return getInstructionsByRecipe(uri);
+            return getInstructionsByRecipe(uri, cancellationSignal);
+        } else if (uriType == RECIPE_FULL) {
+            return getFullRecipe(uri, cancellationSignal);
+        } else if (uriType == RECIPE_SEARCH) {
+            return searchRecipes(uri, cancellationSignal);
+        } else if (uriType == RECIPE_BATCH) {
+            return getRecipeBatch(uri, cancellationSignal);
+        } else if (uriType == RECIPE_CONTAINING) {
+            return getRecipesContaining(uri, cancellationSignal);
         } else {
             throw new IllegalArgumentException("Unknown URI: " + uri);
         }
-        return null;
     }
 
-    public Cursor getRecipe(Uri uri) {
+    /**
+     * Lists recipes with the caller's projection, selection and sort order.
+     *
+     * The list can be paged with the {@link #PARAM_LIMIT} query parameter. To fetch the page
+     * after a given row, pass that row's title and id as {@link #PARAM_AFTER_TITLE} and
+     * {@link #PARAM_AFTER_ID}; the next page then starts with a seek on the (title, _id)
+     * index rather than an OFFSET scan, so every page costs the same. After a row whose title
+     * is null, which sorts first, pass only its id. Paging by key is only defined for the
+     * default {@link #DEFAULT_SORT_ORDER}.
+     *
+     * {@link #PARAM_MIN_PREP_TIME} and {@link #PARAM_MAX_PREP_TIME} keep the recipes whose
+     * prep time in minutes is in that inclusive range, and {@link #SORT_BY_PREP_TIME} lists
+     * the quickest first; recipes whose prep time does not parse sort before all others and
+     * never match a range. The prep time index also holds the id, title and prep time, so
+     * a list of those columns sorted by prep time never reads the table. A range in the
+     * default order may still be answered by walking the title index.
+     */
+    public Cursor getRecipes(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                             String sortOrder, CancellationSignal cancellationSignal) {
         SQLiteQueryBuilder queryBuilder = new SQLiteQueryBuilder();
         queryBuilder.setTables(FoodTable.TABLE);
-        String[] projection = { FoodTable.ID, FoodTable.TITLE,
-                FoodTable.DESCRIPTION, FoodTable.PHOTO,
-                FoodTable.PREP_TIME};
-        SQLiteDatabase db = database.getReadableDatabase();
-        queryBuilder.appendWhere(FoodTable.ID + "='"
-                + uri.getLastPathSegment() + "'");
-        Cursor cursor = queryBuilder.query(db, projection, null,
-                null, null, null, null);
-        cursor.setNotificationUri(getContext().getContentResolver(), uri);
+        queryBuilder.setStrict(true);
+
+        if (sortOrder == null) {
+            sortOrder = DEFAULT_SORT_ORDER;
+        }
+
+        if (uri.getQueryParameter(PARAM_MAX_PREP_TIME) != null) {
+            selection = appendSelection(FoodTable.PREP_TIME_MINUTES + " <= ?", selection);
+            selectionArgs = concat(new String[]{Integer.toString(parseIntParameter(uri, PARAM_MAX_PREP_TIME, 0))},
+                    selectionArgs);
+        }
+        if (uri.getQueryParameter(PARAM_MIN_PREP_TIME) != null) {
+            selection = appendSelection(FoodTable.PREP_TIME_MINUTES + " >= ?", selection);
+            selectionArgs = concat(new String[]{Integer.toString(parseIntParameter(uri, PARAM_MIN_PREP_TIME, 0))},
+                    selectionArgs);
+        }
 
+        String afterTitle = uri.getQueryParameter(PARAM_AFTER_TITLE);
+        String afterId = uri.getQueryParameter(PARAM_AFTER_ID);
+        if (afterTitle != null || afterId != null) {
+            if (afterId == null) {
+                throw new IllegalArgumentException(PARAM_AFTER_ID + " is required with "
+                        + PARAM_AFTER_TITLE + ": " + uri);
+            }
+            if (!DEFAULT_SORT_ORDER.equals(sortOrder)) {
+                throw new IllegalArgumentException("Keyset paging requires sort order "
+                        + DEFAULT_SORT_ORDER + ": " + uri);
+            }
+            String keyset;
+            String[] keysetArgs;
+            if (afterTitle != null) {
+                // (title, _id) > (afterTitle, afterId), written so the index range starts at afterTitle
+                keyset = "(" + FoodTable.TITLE + " >= ? AND (" + FoodTable.TITLE + " > ? OR "
+                        + FoodTable.ID + " > ?))";
+                keysetArgs = new String[]{afterTitle, afterTitle, afterId};
+            } else {
+                // null titles sort first, so after one come the later null titles and every titled row
+                keyset = "(" + FoodTable.TITLE + " IS NOT NULL OR " + FoodTable.ID + " > ?)";
+                keysetArgs = new String[]{afterId};
+            }
+            selection = selection == null ? keyset : keyset + " AND (" + selection + ")";
+            selectionArgs = concat(keysetArgs, selectionArgs);
+        }
+
+        String limit = null;
+        if (uri.getQueryParameter(PARAM_LIMIT) != null) {
+            limit = Integer.toString(parseIntParameter(uri, PARAM_LIMIT, 0));
+        }
+
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = queryBuilder.query(db, projection, selection, selectionArgs,
+                null, null, sortOrder, limit, cancellationSignal);
+        cursor.setNotificationUri(getContext().getContentResolver(), CONTENT_URI);
         return cursor;
     }
 
-    public Cursor getIngredientsByRecipe(Uri uri) {
-        SQLiteQueryBuilder queryBuilder = new SQLiteQueryBuilder();
-        queryBuilder.setTables(FoodTable.TABLE + ", " + FoodIngredientTable.TABLE);
-        queryBuilder.appendWhere(FoodTable.ID + "='" + uri.getLastPathSegment() + "' AND " + FoodIngredientTable.RECIPE_ID + "=" + FoodTable.ID + "");
-        String[] projection = {FoodIngredientTable.AMOUNT, FoodIngredientTable.DESCRIPTION};
-        SQLiteDatabase db = database.getReadableDatabase();
-        Cursor cursor = queryBuilder.query(db, projection, null, null, null, null, null);
-        cursor.setNotificationUri(getContext().getContentResolver(), uri);
+    private static String[] concat(String[] first, String[] second) {
+        if (second == null || second.length == 0) {
+            return first;
+        }
+        String[] result = new String[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    public Cursor getRecipe(Uri uri, CancellationSignal cancellationSignal) {
+        return queryByRecipeId(RECIPE_ID, uri, cancellationSignal);
+    }
+
+    public Cursor getIngredientsByRecipe(Uri uri, CancellationSignal cancellationSignal) {
+        return queryByRecipeId(RECIPE_INGREDIENTS, uri, cancellationSignal);
+    }
+
+    public Cursor getInstructionsByRecipe(Uri uri, CancellationSignal cancellationSignal) {
+        return queryByRecipeId(RECIPE_INSTRUCTIONS, uri, cancellationSignal);
+    }
+
+    /**
+     * Returns the recipe header, its ingredients and its steps in a single cursor. The three
+     * parts are read by one compound SELECT, so they come from the same snapshot of the
+     * database and fill a single {@link android.database.CursorWindow}.
+     */
+    public Cursor getFullRecipe(Uri uri, CancellationSignal cancellationSignal) {
+        return queryByRecipeId(RECIPE_FULL, uri, cancellationSignal);
+    }
+
+    /**
+     * Full-text search over recipe titles, descriptions and ingredients. Every word of the
+     * {@link #PARAM_QUERY} parameter must match the start of an indexed word, which suits
+     * search-as-you-type. Results are ranked by {@link SearchRanker} from the matchinfo of
+     * each match and paged with {@link #PARAM_LIMIT} and {@link #PARAM_OFFSET}.
+     */
+    public Cursor searchRecipes(Uri uri, CancellationSignal cancellationSignal) {
+        String matchQuery = buildMatchQuery(uri.getQueryParameter(PARAM_QUERY));
+        if (matchQuery == null) {
+            return new MatrixCursor(SEARCH_COLUMNS, 0);
+        }
+        int limit = parseIntParameter(uri, PARAM_LIMIT, DEFAULT_SEARCH_LIMIT);
+        int offset = parseIntParameter(uri, PARAM_OFFSET, 0);
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor matches = db.rawQuery(statements.get(RECIPE_SEARCH), new String[]{matchQuery}, cancellationSignal);
+        Cursor cursor;
+        try {
+            cursor = SearchRanker.rank(matches, limit, offset);
+        } finally {
+            matches.close();
+        }
+        cursor.setNotificationUri(getContext().getContentResolver(), CONTENT_URI);
         return cursor;
     }
 
-    public Cursor getInstructionsByRecipe(Uri uri) {
-        SQLiteQueryBuilder queryBuilder = new SQLiteQueryBuilder();
-        queryBuilder.setTables(FoodTable.TABLE + ", " + FoodInstructionsTable.TABLE);
-        queryBuilder.appendWhere(FoodTable.ID + "='" + uri.getLastPathSegment() + "' AND " + FoodInstructionsTable.RECIPE_ID + "=" + FoodTable.ID + "");
-        String[] projection = {FoodInstructionsTable.NUM, FoodInstructionsTable.DESCRIPTION, FoodInstructionsTable.PHOTO};
-        SQLiteDatabase db = database.getReadableDatabase();
-        Cursor cursor = queryBuilder.query(db, projection, null, null, null, null, null);
-        cursor.setNotificationUri(getContext().getContentResolver(), uri);
+    /**
+     * Lists the recipes that use every ingredient given as a repeated {@link #PARAM_INGREDIENT}
+     * parameter, at most {@link #MAX_CONTAINING_INGREDIENTS} of them, in pages of
+     * {@link #PARAM_LIMIT} from {@link #PARAM_OFFSET}. Ingredients are matched by their
+     * normalized name, so "Olive oil" finds "olive  oil". The rows have the columns of
+     * search results, in recipe id order.
+     */
+    public Cursor getRecipesContaining(Uri uri, CancellationSignal cancellationSignal) {
+        Set<String> names = new LinkedHashSet<String>();
+        for (String ingredient : uri.getQueryParameters(PARAM_INGREDIENT)) {
+            String name = IngredientParser.normalizeName(ingredient);
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        if (names.isEmpty()) {
+            return new MatrixCursor(SEARCH_COLUMNS, 0);
+        }
+        if (names.size() > MAX_CONTAINING_INGREDIENTS) {
+            throw new IllegalArgumentException("More than " + MAX_CONTAINING_INGREDIENTS + " ingredients: " + uri);
+        }
+        List<String> args = new ArrayList<String>(names);
+        args.add(Integer.toString(parseIntParameter(uri, PARAM_LIMIT, DEFAULT_SEARCH_LIMIT)));
+        args.add(Integer.toString(parseIntParameter(uri, PARAM_OFFSET, 0)));
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery(statements.get(RECIPE_CONTAINING + names.size()),
+                args.toArray(new String[0]), cancellationSignal);
+        cursor.setNotificationUri(getContext().getContentResolver(), CONTENT_URI);
         return cursor;
     }
 
+    /**
+     * Returns several recipes in one cursor, for surfaces that show a handful of recipes at
+     * once. The ids are given as repeated {@link #PARAM_ID} parameters, at most
+     * {@link #MAX_BATCH_SIZE} of them, and the recipes come back in that order as the rows of
+     * {@link FoodRecipeFullTable} with a {@link FoodRecipeFullTable#RECIPE_ID_COLUMN}. Only
+     * the header rows are returned unless {@link #PARAM_INCLUDE} lists
+     * {@link #INCLUDE_INGREDIENTS} and/or {@link #INCLUDE_STEPS}, comma-separated. Ids without
+     * a recipe are left out.
+     *
+     * The ids are looked up with IN-lists of {@link RecipeBatchBuilder#CHUNK_SIZE}. The
+     * chunks are separate reads on the reader connections rather than one transaction, which
+     * would hold the only write connection; an import running alongside can land between two
+     * of them.
+     */
+    public Cursor getRecipeBatch(Uri uri, CancellationSignal cancellationSignal) {
+        List<String> requested = uri.getQueryParameters(PARAM_ID);
+        if (requested.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("More than " + MAX_BATCH_SIZE + " ids: " + uri);
+        }
+        Set<String> include = new HashSet<String>();
+        String includeParameter = uri.getQueryParameter(PARAM_INCLUDE);
+        if (includeParameter != null) {
+            include.addAll(Arrays.asList(includeParameter.split(",")));
+        }
+
+        SQLiteDatabase db = getReadableDatabase();
+        // ids the filter rules out are not worth a placeholder
+        RecipeIdFilter filter = database.getRecipeIdFilter();
+        List<String> recipeIds = new ArrayList<String>(requested.size());
+        for (String recipeId : requested) {
+            if (filter == null || filter.mightContain(recipeId)) {
+                recipeIds.add(recipeId);
+            }
+        }
+        RecipeBatchBuilder batch = new RecipeBatchBuilder(recipeIds);
+
+        for (int chunk = 0; chunk < batch.getChunkCount(); chunk++) {
+            String[] args = batch.getChunkArgs(chunk);
+            Cursor rows = db.rawQuery(statements.get(BATCH_RECIPES_STATEMENT), args, cancellationSignal);
+            try {
+                batch.addRecipes(rows);
+            } finally {
+                rows.close();
+            }
+            if (include.contains(INCLUDE_INGREDIENTS)) {
+                rows = db.rawQuery(statements.get(BATCH_INGREDIENTS_STATEMENT), args, cancellationSignal);
+                try {
+                    batch.addIngredients(rows);
+                } finally {
+                    rows.close();
+                }
+            }
+            if (include.contains(INCLUDE_STEPS)) {
+                rows = db.rawQuery(statements.get(BATCH_STEPS_STATEMENT), args, cancellationSignal);
+                try {
+                    batch.addSteps(rows);
+                } finally {
+                    rows.close();
+                }
+            }
+        }
+        if (filter != null) {
+            // the ids the filter let through, as queryByRecipeId records them
+            for (String recipeId : batch.getRecipeIds()) {
+                filter.recordLookup(batch.contains(recipeId));
+            }
+        }
+
+        Cursor cursor = batch.build();
+        cursor.setNotificationUri(getContext().getContentResolver(), CONTENT_URI);
+        return cursor;
+    }
+
+    /**
+     * Turns free text into an FTS query of prefix terms. Everything but letters and digits
+     * is dropped so user input cannot inject FTS operators. Returns null if no word is left.
+     */
+    static String buildMatchQuery(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start == -1) {
+                start = i;
+            } else if (!wordChar && start != -1) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append(text.substring(start, i).toLowerCase()).append('*');
+                start = -1;
+            }
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+
+    private static int parseIntParameter(Uri uri, String name, int defaultValue) {
+        String value = uri.getQueryParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid " + name + ": " + uri);
+    }
+
+    /**
+     * Runs the cached statement for the given URI type with the recipe id from the URI bound
+     * to every placeholder. The id is never spliced into the SQL text.
+     *
+     * Ids the {@link RecipeIdFilter} rules out get an empty cursor without a query.
+     */
+    private Cursor queryByRecipeId(int uriType, Uri uri, CancellationSignal cancellationSignal) {
+        String recipeId = uri.getLastPathSegment();
+        SQLiteDatabase db = getReadableDatabase();
+        RecipeIdFilter filter = database.getRecipeIdFilter();
+
+        Cursor cursor;
+        if (filter != null && !filter.mightContain(recipeId)) {
+            cursor = new MatrixCursor(getRecipeIdColumns(uriType), 0);
+        } else {
+            String[] args = uriType == RECIPE_FULL
+                    ? new String[]{recipeId, recipeId, recipeId}
+                    : new String[]{recipeId};
+            cursor = db.rawQuery(statements.get(uriType), args, cancellationSignal);
+            if (filter != null && (uriType == RECIPE_ID || uriType == RECIPE_FULL)) {
+                // only these always return the recipe row, so only they tell a false positive
+                filter.recordLookup(cursor.getCount() > 0);
+            }
+        }
+        // every view of a recipe shares the recipe/<id> URI that writes notify
+        cursor.setNotificationUri(getContext().getContentResolver(), getRecipeUri(recipeId));
+        return cursor;
+    }
+
+    // result columns of the statements from buildStatement()
+    private static String[] getRecipeIdColumns(int uriType) {
+        if (uriType == RECIPE_ID) {
+            return new String[]{FoodTable.ID_COLUMN, FoodTable.TITLE_COLUMN, FoodTable.DESCRIPTION_COLUMN,
+                    FoodTable.PHOTO_COLUMN, FoodTable.PREP_TIME_COLUMN};
+        } else if (uriType == RECIPE_INGREDIENTS) {
+            return new String[]{FoodIngredientTable.ID_COLUMN, FoodIngredientTable.AMOUNT_COLUMN,
+                    FoodIngredientTable.DESCRIPTION_COLUMN};
+        } else if (uriType == RECIPE_INSTRUCTIONS) {
+            return new String[]{FoodInstructionsTable.NUM_COLUMN, FoodInstructionsTable.DESCRIPTION_COLUMN,
+                    FoodInstructionsTable.PHOTO_COLUMN};
+        }
+        return new String[]{FoodRecipeFullTable.ROW_TYPE_COLUMN, FoodRecipeFullTable.POSITION_COLUMN,
+                FoodRecipeFullTable.ID_COLUMN, FoodRecipeFullTable.TITLE_COLUMN,
+                FoodRecipeFullTable.DESCRIPTION_COLUMN, FoodRecipeFullTable.PREP_TIME_COLUMN,
+                FoodRecipeFullTable.PHOTO_COLUMN, FoodRecipeFullTable.AMOUNT_COLUMN,
+                FoodRecipeFullTable.QUANTITY_COLUMN, FoodRecipeFullTable.UNIT_COLUMN,
+                FoodRecipeFullTable.INGREDIENT_ID_COLUMN, FoodRecipeFullTable.INGREDIENT_NAME_COLUMN};
+    }
+
+    private static Uri getRecipeUri(String recipeId) {
+        return CONTENT_URI.buildUpon().appendPath(recipeId).build();
+    }
+
+    private static String buildStatement(int uriType) {
+        if (uriType == RECIPE_ID) {
+            return RecipeStatements.recipeById();
+        } else if (uriType == RECIPE_INGREDIENTS) {
+            return RecipeStatements.ingredientsByRecipe();
+        } else if (uriType == RECIPE_INSTRUCTIONS) {
+            return RecipeStatements.instructionsByRecipe();
+        } else if (uriType == RECIPE_FULL) {
+            return RecipeStatements.fullRecipe();
+        } else if (uriType == RECIPE_SEARCH) {
+            return RecipeStatements.search();
+        } else if (uriType == BATCH_RECIPES_STATEMENT) {
+            return RecipeStatements.recipesByIds(RecipeBatchBuilder.CHUNK_SIZE);
+        } else if (uriType == BATCH_INGREDIENTS_STATEMENT) {
+            return RecipeStatements.ingredientsByRecipes(RecipeBatchBuilder.CHUNK_SIZE);
+        } else if (uriType == BATCH_STEPS_STATEMENT) {
+            return RecipeStatements.instructionsByRecipes(RecipeBatchBuilder.CHUNK_SIZE);
+        } else if (uriType > RECIPE_CONTAINING && uriType <= RECIPE_CONTAINING + MAX_CONTAINING_INGREDIENTS) {
+            return RecipeStatements.recipesContaining(uriType - RECIPE_CONTAINING);
+        }
+        throw new IllegalArgumentException("No statement for URI type " + uriType);
+    }
+
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (METHOD_GET_STATEMENT_CACHE_STATS.equals(method)) {
+            // the per-connection hit and miss counts are in adb shell dumpsys dbinfo
+            Bundle stats = new Bundle();
+            stats.putInt(KEY_STATEMENT_COUNT, statements.size());
+            stats.putInt(KEY_MAX_SQL_CACHE_SIZE, database.getMaxSqlCacheSize());
+            stats.putLong(KEY_STATEMENT_HIT_COUNT, statements.getHitCount());
+            stats.putLong(KEY_STATEMENT_MISS_COUNT, statements.getMissCount());
+            return stats;
+        } else if (METHOD_GET_METRICS.equals(method)) {
+            return getMetrics();
+        } else if (METHOD_IMPORT_CATALOG.equals(method)) {
+            return importCatalog(arg);
+        } else if (METHOD_MIGHT_CONTAIN_RECIPE.equals(method)) {
+            // answers without waiting for the database; until it is open every id might exist
+            RecipeIdFilter filter = database.getRecipeIdFilter();
+            Bundle result = new Bundle();
+            result.putBoolean(KEY_MIGHT_CONTAIN, filter == null || filter.mightContain(arg));
+            return result;
+        } else if (METHOD_GET_RECIPE_ID_FILTER_STATS.equals(method)) {
+            RecipeIdFilter filter = database.getRecipeIdFilter();
+            Bundle stats = new Bundle();
+            if (filter != null) {
+                stats.putLong(KEY_BIT_COUNT, filter.getBitCount());
+                stats.putInt(KEY_HASH_COUNT, filter.getHashCount());
+                stats.putLong(KEY_ID_COUNT, filter.getInsertionCount());
+                stats.putDouble(KEY_EXPECTED_FALSE_POSITIVE_RATE, filter.getExpectedFalsePositiveRate());
+                stats.putDouble(KEY_OBSERVED_FALSE_POSITIVE_RATE, filter.getObservedFalsePositiveRate());
+            }
+            return stats;
+        }
+        return super.call(method, arg, extras);
+    }
+
+    /**
+     * Returns every metric of {@link MetricsRegistry} plus the provider's own statistics in
+     * one bundle. Counters are longs; each histogram is a long array of count, p50, p90 and
+     * p99 in nanoseconds.
+     */
+    private Bundle getMetrics() {
+        Bundle metrics = new Bundle();
+        MetricsRegistry.Snapshot snapshot = MetricsRegistry.getInstance().snapshot();
+        for (Map.Entry<String, Long> counter : snapshot.counters.entrySet()) {
+            metrics.putLong(counter.getKey(), counter.getValue());
+        }
+        for (Map.Entry<String, MetricsRegistry.HistogramSnapshot> entry : snapshot.histograms.entrySet()) {
+            MetricsRegistry.HistogramSnapshot histogram = entry.getValue();
+            metrics.putLongArray(entry.getKey(),
+                    new long[]{histogram.count, histogram.p50, histogram.p90, histogram.p99});
+        }
+        metrics.putLong("statement_cache.statements", statements.size());
+        metrics.putLong("statement_cache.max_sql_cache_size", database.getMaxSqlCacheSize());
+        metrics.putLong("statement_cache.hits", statements.getHitCount());
+        metrics.putLong("statement_cache.misses", statements.getMissCount());
+        if (prewarmer != null) {
+            metrics.putLong("prewarm.copy_ms", prewarmer.getCopyMillis());
+            metrics.putLong("prewarm.open_ms", prewarmer.getOpenMillis());
+            metrics.putLong("prewarm.prime_ms", prewarmer.getPrimeMillis());
+        }
+        RecipeIdFilter filter = database.getRecipeIdFilter();
+        if (filter != null) {
+            metrics.putDouble("id_filter.expected_fp_rate", filter.getExpectedFalsePositiveRate());
+            metrics.putDouble("id_filter.observed_fp_rate", filter.getObservedFalsePositiveRate());
+        }
+        return metrics;
+    }
+
+    /**
+     * Prints the metrics for adb shell dumpsys activity provider
+     * com.sopan.app_link/.content_provider.FoodContentProvider
+     */
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        MetricsRegistry.getInstance().dump(writer);
+        writer.println("Statement cache: statements=" + statements.size()
+                + " hits=" + statements.getHitCount() + " misses=" + statements.getMissCount()
+                + " max sql cache size=" + database.getMaxSqlCacheSize()
+                + " (per-connection hits and misses: adb shell dumpsys dbinfo com.sopan.app_link)");
+        if (prewarmer != null) {
+            writer.println("Prewarm (ms): copy=" + prewarmer.getCopyMillis() + " open=" + prewarmer.getOpenMillis()
+                    + " prime=" + prewarmer.getPrimeMillis());
+        }
+        RecipeIdFilter filter = database.getRecipeIdFilter();
+        if (filter != null) {
+            writer.println("Recipe id filter: ids=" + filter.getInsertionCount() + " bits=" + filter.getBitCount()
+                    + " hashes=" + filter.getHashCount()
+                    + " expected fp rate=" + filter.getExpectedFalsePositiveRate()
+                    + " observed fp rate=" + filter.getObservedFalsePositiveRate());
+        }
+    }
+
+    /**
+     * Imports the JSON or NDJSON catalog file at the given path, see {@link CatalogImporter}.
+     * This runs on the calling thread and can take a while, so call it from the background.
+     */
+    private Bundle importCatalog(String path) {
+        CatalogImporter.Result result = new CatalogImporter.Result();
+        InputStream in = null;
+        SQLiteDatabase db = getWritableDatabase();
+        RecipeIdFilter filter = database.getRecipeIdFilter();
+        try {
+            in = new BufferedInputStream(new FileInputStream(path));
+            CatalogImporter importer = new CatalogImporter(db);
+            importer.setRecipeIdFilter(filter);
+            importer.importCatalog(in, result);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot import catalog " + path, e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+            // batches committed before a failure are in the database, so they still count
+            if (filter != null && filter.isSaturated()) {
+                database.rebuildRecipeIdFilter(db);
+            }
+            if (result.committed) {
+                notifyCatalogChanged();
+            }
+        }
+        Log.i(TAG, "Imported " + path + ": " + result);
+
+        Bundle stats = new Bundle();
+        stats.putInt(KEY_RECIPES_INSERTED, result.recipesInserted);
+        stats.putInt(KEY_RECIPES_UPDATED, result.recipesUpdated);
+        stats.putInt(KEY_RECIPES_SKIPPED, result.recipesSkipped);
+        stats.putLong(KEY_ROWS_WRITTEN, result.rowsWritten);
+        stats.putDouble(KEY_ROWS_PER_SECOND, result.getRowsPerSecond());
+        return stats;
+    }
+
     @Override
     public String getType(Uri uri) {
         return BASE_PATH;
     }
 
+    /**
+     * Inserts a recipe through recipe/, or one of its ingredients or steps through
+     * recipe/ingredients/&lt;id&gt; or recipe/instructions/&lt;id&gt;.
+     */
     @Override
     public Uri insert(Uri uri, ContentValues values) {
-        return null;
+        int uriType = sURIMatcher.match(uri);
+        String table = getWritableTable(uriType, uri);
+        String recipeId = getWriteRecipeId(uriType, uri, values);
+        if (uriType != RECIPES) {
+            values = withRecipeId(values, recipeId);
+        } else {
+            values = withPrepTimeMinutes(values);
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        if (uriType == RECIPE_INGREDIENTS) {
+            values = withParsedIngredient(db, values);
+        }
+        long rowId = db.insertOrThrow(table, null, values);
+        if (uriType == RECIPES) {
+            database.addRecipeId(db, recipeId);
+        } else if (uriType == RECIPE_INGREDIENTS) {
+            reindexIngredients(db, Collections.singleton(recipeId));
+        }
+        notifyRecipeChanged(recipeId);
+        return uriType == RECIPES ? getRecipeUri(recipeId) : ContentUris.withAppendedId(uri, rowId);
+    }
+
+    /**
+     * Inserts all rows in a single transaction. Rows with the same set of columns share one
+     * compiled INSERT statement, the search index document of each recipe whose ingredients
+     * were inserted is rebuilt once, and the whole batch sends one change notification once
+     * it is committed. A batch that is rolled back sends none.
+     */
+    @Override
+    public int bulkInsert(Uri uri, ContentValues[] values) {
+        int uriType = sURIMatcher.match(uri);
+        String table = getWritableTable(uriType, uri);
+        SQLiteDatabase db = getWritableDatabase();
+        Map<String, SQLiteStatement> insertStatements = new HashMap<String, SQLiteStatement>();
+
+        beginNotificationBatch();
+        db.beginTransaction();
+        IngredientDictionary dictionary = uriType == RECIPE_INGREDIENTS ? new IngredientDictionary(db) : null;
+        Set<String> recipeIds = new HashSet<String>();
+        boolean successful = false;
+        try {
+            for (ContentValues row : values) {
+                String recipeId = getWriteRecipeId(uriType, uri, row);
+                if (uriType != RECIPES) {
+                    row = withRecipeId(row, recipeId);
+                } else {
+                    row = withPrepTimeMinutes(row);
+                }
+                if (dictionary != null) {
+                    row = dictionary.withParsedColumns(row);
+                }
+
+                String[] columns = row.keySet().toArray(new String[0]);
+                Arrays.sort(columns);
+                String key = TextUtils.join(",", columns);
+                SQLiteStatement statement = insertStatements.get(key);
+                if (statement == null) {
+                    statement = db.compileStatement("INSERT INTO " + table + " (" + key + ") VALUES ("
+                            + TextUtils.join(",", Collections.nCopies(columns.length, "?")) + ")");
+                    insertStatements.put(key, statement);
+                }
+                statement.clearBindings();
+                for (int i = 0; i < columns.length; i++) {
+                    DatabaseUtils.bindObjectToProgram(statement, i + 1, row.get(columns[i]));
+                }
+                statement.executeInsert();
+                if (uriType == RECIPES) {
+                    database.addRecipeId(db, recipeId);
+                }
+                recipeIds.add(recipeId);
+                notifyRecipeChanged(recipeId);
+            }
+            if (uriType == RECIPE_INGREDIENTS) {
+                reindexIngredients(db, recipeIds);
+            }
+            db.setTransactionSuccessful();
+            successful = true;
+        } finally {
+            boolean committed = false;
+            try {
+                db.endTransaction();
+                committed = successful;
+            } finally {
+                for (SQLiteStatement statement : insertStatements.values()) {
+                    statement.close();
+                }
+                if (dictionary != null) {
+                    dictionary.close();
+                }
+                endNotificationBatch(committed);
+            }
+        }
+        return values.length;
+    }
+
+    /**
+     * Applies all operations in a single transaction with one coalesced change notification,
+     * sent once the transaction is committed. The search index documents of the recipes whose
+     * ingredients changed are rebuilt once each at the end, however many of their ingredient
+     * rows the operations wrote. If any operation fails, none of them are kept and no
+     * notification is sent.
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        SQLiteDatabase db = getWritableDatabase();
+        beginNotificationBatch();
+        Set<String> reindex = new HashSet<String>();
+        pendingReindex.set(reindex);
+        db.beginTransaction();
+        boolean successful = false;
+        try {
+            ContentProviderResult[] results = super.applyBatch(operations);
+            RecipeSearchIndex.reindexIngredients(db, reindex);
+            db.setTransactionSuccessful();
+            successful = true;
+            return results;
+        } finally {
+            boolean committed = false;
+            try {
+                db.endTransaction();
+                committed = successful;
+            } finally {
+                pendingReindex.remove();
+                endNotificationBatch(committed);
+            }
+        }
     }
 
+    /**
+     * Deletes recipes through recipe/ or recipe/&lt;id&gt; together with their ingredients and
+     * steps, or only ingredients or steps through the child URIs. Deleted ids stay in the
+     * {@link RecipeIdFilter} as false positives until it is rebuilt.
+     */
     @Override
     public int delete(Uri uri, String selection, String[] selectionArgs) {
-        return 0;
+        int uriType = sURIMatcher.match(uri);
+        SQLiteDatabase db = getWritableDatabase();
+        int count;
+        if (uriType == RECIPES || uriType == RECIPE_ID) {
+            if (uriType == RECIPE_ID) {
+                selection = appendSelection(FoodTable.ID_COLUMN + " = ?", selection);
+                selectionArgs = concat(new String[]{uri.getLastPathSegment()}, selectionArgs);
+            }
+            String children = FoodIngredientTable.RECIPE_ID_COLUMN + " IN (SELECT " + FoodTable.ID_COLUMN
+                    + " FROM " + FoodTable.TABLE + (selection != null ? " WHERE " + selection : "") + ")";
+            db.beginTransaction();
+            try {
+                db.delete(FoodIngredientTable.TABLE, children, selectionArgs);
+                db.delete(FoodInstructionsTable.TABLE, children, selectionArgs);
+                count = db.delete(FoodTable.TABLE, selection, selectionArgs);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } else {
+            String table = getWritableTable(uriType, uri);
+            count = db.delete(table, appendSelection(FoodIngredientTable.RECIPE_ID_COLUMN + " = ?", selection),
+                    concat(new String[]{uri.getLastPathSegment()}, selectionArgs));
+            if (count > 0 && uriType == RECIPE_INGREDIENTS) {
+                reindexIngredients(db, Collections.singleton(uri.getLastPathSegment()));
+            }
+        }
+        if (count > 0) {
+            notifyWrite(uriType, uri);
+        }
+        return count;
     }
 
+    /**
+     * Updates recipes through recipe/ or recipe/&lt;id&gt;, or the ingredients or steps of one
+     * recipe through the child URIs.
+     */
     @Override
     public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
-        return 0;
+        int uriType = sURIMatcher.match(uri);
+        SQLiteDatabase db = getWritableDatabase();
+        String table;
+        if (uriType == RECIPE_ID) {
+            table = FoodTable.TABLE;
+            selection = appendSelection(FoodTable.ID_COLUMN + " = ?", selection);
+            selectionArgs = concat(new String[]{uri.getLastPathSegment()}, selectionArgs);
+        } else {
+            table = getWritableTable(uriType, uri);
+            if (uriType != RECIPES) {
+                selection = appendSelection(FoodIngredientTable.RECIPE_ID_COLUMN + " = ?", selection);
+                selectionArgs = concat(new String[]{uri.getLastPathSegment()}, selectionArgs);
+            }
+        }
+        if (table.equals(FoodTable.TABLE)) {
+            values = withPrepTimeMinutes(values);
+        } else if (table.equals(FoodIngredientTable.TABLE)) {
+            values = withParsedIngredient(db, values);
+        }
+        int count = db.update(table, values, selection, selectionArgs);
+        if (count > 0 && table.equals(FoodTable.TABLE) && values.containsKey(FoodTable.ID_COLUMN)) {
+            // a recipe moved to a new id
+            database.addRecipeId(db, values.getAsString(FoodTable.ID_COLUMN));
+        }
+        if (count > 0 && table.equals(FoodIngredientTable.TABLE)
+                && (values.containsKey(FoodIngredientTable.DESCRIPTION_COLUMN)
+                || values.containsKey(FoodIngredientTable.RECIPE_ID_COLUMN))) {
+            Set<String> recipeIds = new HashSet<String>();
+            recipeIds.add(uri.getLastPathSegment());
+            if (values.containsKey(FoodIngredientTable.RECIPE_ID_COLUMN)) {
+                // ingredients moved to another recipe
+                recipeIds.add(values.getAsString(FoodIngredientTable.RECIPE_ID_COLUMN));
+            }
+            reindexIngredients(db, recipeIds);
+        }
+        if (count > 0) {
+            notifyWrite(uriType, uri);
+        }
+        return count;
     }
 
+    private static String getWritableTable(int uriType, Uri uri) {
+        if (uriType == RECIPES) {
+            return FoodTable.TABLE;
+        } else if (uriType == RECIPE_INGREDIENTS) {
+            return FoodIngredientTable.TABLE;
+        } else if (uriType == RECIPE_INSTRUCTIONS) {
+            return FoodInstructionsTable.TABLE;
+        }
+        throw new IllegalArgumentException("Unsupported URI for writes: " + uri);
+    }
+
+    private static String getWriteRecipeId(int uriType, Uri uri, ContentValues values) {
+        if (uriType != RECIPES) {
+            return uri.getLastPathSegment();
+        }
+        String recipeId = values.getAsString(FoodTable.ID_COLUMN);
+        if (recipeId == null) {
+            throw new IllegalArgumentException("Missing " + FoodTable.ID_COLUMN + " for " + uri);
+        }
+        return recipeId;
+    }
+
+    // prep_time_minutes always follows prep_time, whatever the caller put in it
+    private static ContentValues withPrepTimeMinutes(ContentValues values) {
+        if (!values.containsKey(FoodTable.PREP_TIME_COLUMN)) {
+            return values;
+        }
+        ContentValues copy = new ContentValues(values);
+        int minutes = PrepTimeParser.parseMinutes(values.getAsString(FoodTable.PREP_TIME_COLUMN));
+        if (minutes == PrepTimeParser.UNKNOWN) {
+            copy.putNull(FoodTable.PREP_TIME_MINUTES_COLUMN);
+        } else {
+            copy.put(FoodTable.PREP_TIME_MINUTES_COLUMN, minutes);
+        }
+        return copy;
+    }
+
+    // a single write interns at most one name, so its dictionary is not kept
+    private static ContentValues withParsedIngredient(SQLiteDatabase db, ContentValues values) {
+        IngredientDictionary dictionary = new IngredientDictionary(db);
+        try {
+            return dictionary.withParsedColumns(values);
+        } finally {
+            dictionary.close();
+        }
+    }
+
+    // the child tables share the recipe_id column name
+    private static ContentValues withRecipeId(ContentValues values, String recipeId) {
+        ContentValues copy = new ContentValues(values);
+        copy.put(FoodIngredientTable.RECIPE_ID_COLUMN, recipeId);
+        return copy;
+    }
+
+    // recipes whose ingredients the applyBatch running on this thread has written
+    private final ThreadLocal<Set<String>> pendingReindex = new ThreadLocal<Set<String>>();
+
     /**
-     * This helper loads the SQLite database included with the app
-     * in the assets folder.
+     * Rebuilds the search index documents of recipes whose ingredients were written, or
+     * leaves that to the end of the applyBatch running on this thread.
      */
-    public class RecipeDatabaseHelper extends SQLiteAssetHelper {
+    private void reindexIngredients(SQLiteDatabase db, Set<String> recipeIds) {
+        Set<String> pending = pendingReindex.get();
+        if (pending != null) {
+            pending.addAll(recipeIds);
+        } else {
+            RecipeSearchIndex.reindexIngredients(db, recipeIds);
+        }
+    }
+
+    private static String appendSelection(String where, String selection) {
+        return TextUtils.isEmpty(selection) ? where : where + " AND (" + selection + ")";
+    }
+
+    private void notifyWrite(int uriType, Uri uri) {
+        if (uriType == RECIPES) {
+            notifyCatalogChanged();
+        } else {
+            notifyRecipeChanged(uri.getLastPathSegment());
+        }
+    }
+
+    /**
+     * Recipes touched by the batch running on this thread, so the batch can send one
+     * notification once it is committed, or none if any part of it was rolled back.
+     */
+    private static class NotificationBatch {
+        int depth;
+        boolean rolledBack;
+        boolean catalogChanged;
+        final Set<String> recipeIds = new HashSet<String>();
+    }
 
-        private static final String DATABASE_NAME = "recipes.db";
-        private static final int DATABASE_VERSION = 1;
+    private final ThreadLocal<NotificationBatch> notificationBatch = new ThreadLocal<NotificationBatch>();
 
-        public RecipeDatabaseHelper(Context context) {
-            super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    private void beginNotificationBatch() {
+        NotificationBatch batch = notificationBatch.get();
+        if (batch == null) {
+            batch = new NotificationBatch();
+            notificationBatch.set(batch);
+        }
+        batch.depth++;
+    }
+
+    private void endNotificationBatch(boolean committed) {
+        NotificationBatch batch = notificationBatch.get();
+        if (!committed) {
+            batch.rolledBack = true;
+        }
+        if (--batch.depth > 0) {
+            return;
+        }
+        notificationBatch.remove();
+        if (batch.rolledBack) {
+            return;
+        }
+        if (batch.catalogChanged || batch.recipeIds.size() > 1) {
+            notifyCatalogChanged();
+        } else if (batch.recipeIds.size() == 1) {
+            notifyRecipeChanged(batch.recipeIds.iterator().next());
+        }
+    }
+
+    private void notifyRecipeChanged(String recipeId) {
+        NotificationBatch batch = notificationBatch.get();
+        if (batch != null) {
+            batch.recipeIds.add(recipeId);
+        } else {
+            getContext().getContentResolver().notifyChange(getRecipeUri(recipeId), null);
+        }
+    }
+
+    private void notifyCatalogChanged() {
+        NotificationBatch batch = notificationBatch.get();
+        if (batch != null) {
+            batch.catalogChanged = true;
+        } else {
+            getContext().getContentResolver().notifyChange(CONTENT_URI, null);
         }
     }
 }
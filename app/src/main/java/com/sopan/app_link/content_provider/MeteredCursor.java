@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.content_provider;
+
+import android.database.AbstractWindowedCursor;
+import android.database.Cursor;
+import android.database.CursorWindow;
+import android.database.CrossProcessCursorWrapper;
+
+import com.sopan.app_link.metrics.QueryMetrics;
+
+/**
+ * Records the {@link QueryMetrics} of a query result as it is read.
+ *
+ * SQLite runs a query lazily, when the cursor first fills its window, so the latency is
+ * taken from the start of the query to the first read of its rows. Window fills are
+ * counted both for clients in this process, which read the wrapped cursor's window, and for
+ * remote clients, whose windows are filled through {@link #fillWindow}.
+ */
+class MeteredCursor extends CrossProcessCursorWrapper {
+
+    private final QueryMetrics metrics;
+    private final long startNanos;
+    private boolean read;
+    private CursorWindow lastWindow;
+    private int lastWindowStart = -1;
+
+    MeteredCursor(Cursor cursor, QueryMetrics metrics, long startNanos) {
+        super(cursor);
+        this.metrics = metrics;
+        this.startNanos = startNanos;
+        metrics.queries.incrementAndGet();
+    }
+
+    @Override
+    public int getCount() {
+        int count = super.getCount();
+        onRead();
+        return count;
+    }
+
+    @Override
+    public boolean move(int offset) {
+        return onRead(super.move(offset));
+    }
+
+    @Override
+    public boolean moveToPosition(int position) {
+        return onRead(super.moveToPosition(position));
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        return onRead(super.moveToFirst());
+    }
+
+    @Override
+    public boolean moveToLast() {
+        return onRead(super.moveToLast());
+    }
+
+    @Override
+    public boolean moveToNext() {
+        return onRead(super.moveToNext());
+    }
+
+    @Override
+    public boolean moveToPrevious() {
+        return onRead(super.moveToPrevious());
+    }
+
+    @Override
+    public void fillWindow(int position, CursorWindow window) {
+        super.fillWindow(position, window);
+        metrics.windowFills.incrementAndGet();
+        onFirstRead();
+    }
+
+    @Override
+    public void close() {
+        if (read && !isClosed()) {
+            // the count is known once the rows were read, so this runs no query
+            metrics.rows.addAndGet(super.getCount());
+        }
+        super.close();
+    }
+
+    private boolean onRead(boolean result) {
+        onRead();
+        return result;
+    }
+
+    private void onRead() {
+        Cursor cursor = getWrappedCursor();
+        if (cursor instanceof AbstractWindowedCursor) {
+            CursorWindow window = ((AbstractWindowedCursor) cursor).getWindow();
+            if (window != null && (window != lastWindow || window.getStartPosition() != lastWindowStart)) {
+                lastWindow = window;
+                lastWindowStart = window.getStartPosition();
+                metrics.windowFills.incrementAndGet();
+            }
+        }
+        onFirstRead();
+    }
+
+    private void onFirstRead() {
+        if (!read) {
+            read = true;
+            metrics.latency.record(System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.content_provider;
+
+import android.util.SparseArray;
+
+/**
+ * Holds the fixed, parameterized SQL text used for each URI type. Each statement is built
+ * the first time it is needed and then handed out unchanged, so SQLite always sees the same
+ * text for a URI type and can reuse its compiled statement from the connection's cache.
+ *
+ * The compiled statements themselves live in SQLite's per-connection cache, sized with
+ * SQLiteDatabase.setMaxSqlCacheSize. Its hits and misses are only reported by
+ * adb shell dumpsys dbinfo; {@link #size} tells how many texts it has to hold. The hit and
+ * miss counts here are for the SQL texts: a hit reuses a built text, a miss builds one.
+ */
+public class StatementCache {
+
+    /**
+     * Builds the SQL for a key the first time it is requested.
+     */
+    public interface Builder {
+        String build(int key);
+    }
+
+    private final Builder builder;
+    private final SparseArray<String> statements = new SparseArray<String>();
+    private long hitCount;
+    private long missCount;
+
+    public StatementCache(Builder builder) {
+        this.builder = builder;
+    }
+
+    public synchronized String get(int key) {
+        String sql = statements.get(key);
+        if (sql != null) {
+            hitCount++;
+            return sql;
+        }
+        missCount++;
+        sql = builder.build(key);
+        statements.put(key, sql);
+        return sql;
+    }
+
+    /**
+     * Returns the number of distinct statements built so far.
+     */
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams a recipe catalog into the database.
+ *
+ * The input is either a JSON array of recipe objects or newline-delimited JSON with one
+ * recipe object per line. Recipe objects use the column names of the recipes table plus an
+ * "ingredients" array ({"amount", "description"}) and an "instructions" array
+ * ({"num", "description", "photo"}). The file is read token by token and only the recipe
+ * being imported is held in memory, so memory use does not grow with the catalog.
+ *
+ * Recipes are upserted by _id. A hash of each recipe's content is stored alongside it, and
+ * recipes whose hash has not changed are skipped without touching their rows. Writes are
+ * committed every {@link #DEFAULT_BATCH_SIZE} recipes, so a failure partway through keeps the
+ * batches committed before it. The search index document of each written recipe is rebuilt
+ * once, after its ingredients are in.
+ */
+public class CatalogImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final SQLiteDatabase db;
+    private final int batchSize;
+    private RecipeIdFilter recipeIdFilter;
+
+    public CatalogImporter(SQLiteDatabase db) {
+        this(db, DEFAULT_BATCH_SIZE);
+    }
+
+    public CatalogImporter(SQLiteDatabase db, int batchSize) {
+        this.db = db;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets a filter that every newly inserted recipe id is added to.
+     */
+    public void setRecipeIdFilter(RecipeIdFilter recipeIdFilter) {
+        this.recipeIdFilter = recipeIdFilter;
+    }
+
+    /**
+     * Counts and timing of one import.
+     */
+    public static class Result {
+        public int recipesInserted;
+        public int recipesUpdated;
+        public int recipesSkipped;
+        public long rowsWritten;
+        public long elapsedNanos;
+        /** Whether at least one written recipe was committed, even if a later batch failed. */
+        public boolean committed;
+
+        public boolean hasChanges() {
+            return recipesInserted > 0 || recipesUpdated > 0;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsWritten * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "inserted=" + recipesInserted + " updated=" + recipesUpdated + " skipped=" + recipesSkipped
+                    + " rows=" + rowsWritten + " (" + Math.round(getRowsPerSecond()) + " rows/s)";
+        }
+    }
+
+    private static class CatalogRecipe {
+        String id;
+        String title;
+        String description;
+        String prepTime;
+        String photo;
+        final List<String[]> ingredients = new ArrayList<String[]>();
+        final List<String[]> instructions = new ArrayList<String[]>();
+    }
+
+    public Result importCatalog(InputStream in) throws IOException {
+        Result result = new Result();
+        importCatalog(in, result);
+        return result;
+    }
+
+    /**
+     * Imports the catalog into the given result, which keeps the counts of the batches done
+     * so far when the import throws.
+     */
+    public void importCatalog(InputStream in, Result result) throws IOException {
+        long start = System.nanoTime();
+
+        SQLiteStatement selectHash = db.compileStatement("SELECT " + FoodTable.CONTENT_HASH_COLUMN + " FROM "
+                + FoodTable.TABLE + " WHERE " + FoodTable.ID_COLUMN + " = ?");
+        SQLiteStatement insertRecipe = db.compileStatement("INSERT INTO " + FoodTable.TABLE + " ("
+                + FoodTable.TITLE_COLUMN + ", " + FoodTable.DESCRIPTION_COLUMN + ", " + FoodTable.PREP_TIME_COLUMN + ", "
+                + FoodTable.PHOTO_COLUMN + ", " + FoodTable.PREP_TIME_MINUTES_COLUMN + ", "
+                + FoodTable.CONTENT_HASH_COLUMN + ", " + FoodTable.ID_COLUMN + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+        SQLiteStatement updateRecipe = db.compileStatement("UPDATE " + FoodTable.TABLE + " SET "
+                + FoodTable.TITLE_COLUMN + " = ?, " + FoodTable.DESCRIPTION_COLUMN + " = ?, "
+                + FoodTable.PREP_TIME_COLUMN + " = ?, " + FoodTable.PHOTO_COLUMN + " = ?, "
+                + FoodTable.PREP_TIME_MINUTES_COLUMN + " = ?, " + FoodTable.CONTENT_HASH_COLUMN + " = ? WHERE "
+                + FoodTable.ID_COLUMN + " = ?");
+        SQLiteStatement deleteIngredients = db.compileStatement("DELETE FROM " + FoodIngredientTable.TABLE
+                + " WHERE " + FoodIngredientTable.RECIPE_ID_COLUMN + " = ?");
+        SQLiteStatement deleteInstructions = db.compileStatement("DELETE FROM " + FoodInstructionsTable.TABLE
+                + " WHERE " + FoodInstructionsTable.RECIPE_ID_COLUMN + " = ?");
+        SQLiteStatement insertIngredient = db.compileStatement("INSERT INTO " + FoodIngredientTable.TABLE + " ("
+                + FoodIngredientTable.RECIPE_ID_COLUMN + ", " + FoodIngredientTable.AMOUNT_COLUMN + ", "
+                + FoodIngredientTable.DESCRIPTION_COLUMN + ", " + FoodIngredientTable.INGREDIENT_ID_COLUMN + ", "
+                + FoodIngredientTable.QUANTITY_COLUMN + ", " + FoodIngredientTable.UNIT_COLUMN
+                + ") VALUES (?, ?, ?, ?, ?, ?)");
+        IngredientDictionary dictionary = new IngredientDictionary(db);
+        RecipeSearchIndex searchIndex = new RecipeSearchIndex(db);
+        SQLiteStatement insertInstruction = db.compileStatement("INSERT INTO " + FoodInstructionsTable.TABLE + " ("
+                + FoodInstructionsTable.RECIPE_ID_COLUMN + ", " + FoodInstructionsTable.NUM_COLUMN + ", "
+                + FoodInstructionsTable.DESCRIPTION_COLUMN + ", " + FoodInstructionsTable.PHOTO_COLUMN
+                + ") VALUES (?, ?, ?, ?)");
+
+        JsonReader reader = new JsonReader(new InputStreamReader(in, UTF_8));
+        // lenient mode accepts several top-level values, which is what NDJSON is
+        reader.setLenient(true);
+        int inBatch = 0;
+        db.beginTransaction();
+        try {
+            CatalogRecipe recipe;
+            while ((recipe = nextRecipe(reader)) != null) {
+                String hash = hash(recipe);
+
+                String storedHash;
+                boolean exists;
+                selectHash.bindString(1, recipe.id);
+                try {
+                    storedHash = selectHash.simpleQueryForString();
+                    exists = true;
+                } catch (SQLiteDoneException e) {
+                    storedHash = null;
+                    exists = false;
+                }
+
+                if (hash.equals(storedHash)) {
+                    result.recipesSkipped++;
+                    continue;
+                }
+
+                SQLiteStatement writeRecipe = exists ? updateRecipe : insertRecipe;
+                bindNullable(writeRecipe, 1, recipe.title);
+                bindNullable(writeRecipe, 2, recipe.description);
+                bindNullable(writeRecipe, 3, recipe.prepTime);
+                bindNullable(writeRecipe, 4, recipe.photo);
+                int prepTimeMinutes = PrepTimeParser.parseMinutes(recipe.prepTime);
+                if (prepTimeMinutes == PrepTimeParser.UNKNOWN) {
+                    writeRecipe.bindNull(5);
+                } else {
+                    writeRecipe.bindLong(5, prepTimeMinutes);
+                }
+                writeRecipe.bindString(6, hash);
+                writeRecipe.bindString(7, recipe.id);
+                writeRecipe.execute();
+                result.rowsWritten++;
+
+                if (exists) {
+                    deleteIngredients.bindString(1, recipe.id);
+                    deleteIngredients.executeUpdateDelete();
+                    deleteInstructions.bindString(1, recipe.id);
+                    deleteInstructions.executeUpdateDelete();
+                    result.recipesUpdated++;
+                } else {
+                    if (recipeIdFilter != null) {
+                        recipeIdFilter.add(recipe.id);
+                    }
+                    result.recipesInserted++;
+                }
+
+                for (String[] ingredient : recipe.ingredients) {
+                    insertIngredient.bindString(1, recipe.id);
+                    bindNullable(insertIngredient, 2, ingredient[0]);
+                    bindNullable(insertIngredient, 3, ingredient[1]);
+                    dictionary.bindParsedColumns(insertIngredient, 4, ingredient[0], ingredient[1]);
+                    insertIngredient.executeInsert();
+                    result.rowsWritten++;
+                }
+                searchIndex.reindexIngredients(recipe.id);
+                for (String[] instruction : recipe.instructions) {
+                    insertInstruction.bindString(1, recipe.id);
+                    insertInstruction.bindString(2, instruction[0]);
+                    bindNullable(insertInstruction, 3, instruction[1]);
+                    bindNullable(insertInstruction, 4, instruction[2]);
+                    insertInstruction.executeInsert();
+                    result.rowsWritten++;
+                }
+
+                if (++inBatch >= batchSize) {
+                    db.setTransactionSuccessful();
+                    db.endTransaction();
+                    result.committed = true;
+                    db.beginTransaction();
+                    inBatch = 0;
+                }
+            }
+            db.setTransactionSuccessful();
+            if (inBatch > 0) {
+                result.committed = true;
+            }
+        } finally {
+            db.endTransaction();
+            reader.close();
+            selectHash.close();
+            insertRecipe.close();
+            updateRecipe.close();
+            deleteIngredients.close();
+            deleteInstructions.close();
+            insertIngredient.close();
+            insertInstruction.close();
+            dictionary.close();
+            searchIndex.close();
+        }
+
+        result.elapsedNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Reads the next recipe object, stepping into a top-level array if there is one.
+     * Returns null at the end of the input.
+     */
+    private static CatalogRecipe nextRecipe(JsonReader reader) throws IOException {
+        while (true) {
+            JsonToken token = reader.peek();
+            if (token == JsonToken.END_DOCUMENT) {
+                return null;
+            } else if (token == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+            } else if (token == JsonToken.END_ARRAY) {
+                reader.endArray();
+            } else if (token == JsonToken.BEGIN_OBJECT) {
+                return readRecipe(reader);
+            } else {
+                throw new IOException("Expected a recipe object but was " + token);
+            }
+        }
+    }
+
+    private static CatalogRecipe readRecipe(JsonReader reader) throws IOException {
+        CatalogRecipe recipe = new CatalogRecipe();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals(FoodTable.ID_COLUMN)) {
+                recipe.id = nextStringOrNull(reader);
+            } else if (name.equals(FoodTable.TITLE_COLUMN)) {
+                recipe.title = nextStringOrNull(reader);
+            } else if (name.equals(FoodTable.DESCRIPTION_COLUMN)) {
+                recipe.description = nextStringOrNull(reader);
+            } else if (name.equals(FoodTable.PREP_TIME_COLUMN)) {
+                recipe.prepTime = nextStringOrNull(reader);
+            } else if (name.equals(FoodTable.PHOTO_COLUMN)) {
+                recipe.photo = nextStringOrNull(reader);
+            } else if (name.equals("ingredients")) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String[] ingredient = new String[2];
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String field = reader.nextName();
+                        if (field.equals(FoodIngredientTable.AMOUNT_COLUMN)) {
+                            ingredient[0] = nextStringOrNull(reader);
+                        } else if (field.equals(FoodIngredientTable.DESCRIPTION_COLUMN)) {
+                            ingredient[1] = nextStringOrNull(reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    recipe.ingredients.add(ingredient);
+                }
+                reader.endArray();
+            } else if (name.equals("instructions")) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String[] instruction = new String[3];
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String field = reader.nextName();
+                        if (field.equals(FoodInstructionsTable.NUM_COLUMN)) {
+                            instruction[0] = nextStringOrNull(reader);
+                        } else if (field.equals(FoodInstructionsTable.DESCRIPTION_COLUMN)) {
+                            instruction[1] = nextStringOrNull(reader);
+                        } else if (field.equals(FoodInstructionsTable.PHOTO_COLUMN)) {
+                            instruction[2] = nextStringOrNull(reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    if (instruction[0] == null) {
+                        // steps are numbered from 1 in file order unless given explicitly
+                        instruction[0] = Integer.toString(recipe.instructions.size() + 1);
+                    }
+                    recipe.instructions.add(instruction);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (recipe.id == null) {
+            throw new IOException("Recipe without " + FoodTable.ID_COLUMN + " at " + reader);
+        }
+        return recipe;
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * Hashes every stored field of the recipe. Each field is length-prefixed so that
+     * moving text from one field to the next changes the hash.
+     */
+    private static String hash(CatalogRecipe recipe) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, recipe.title);
+        update(digest, recipe.description);
+        update(digest, recipe.prepTime);
+        update(digest, recipe.photo);
+        for (String[] ingredient : recipe.ingredients) {
+            update(digest, ingredient[0]);
+            update(digest, ingredient[1]);
+        }
+        digest.update((byte) 0xff);
+        for (String[] instruction : recipe.instructions) {
+            update(digest, instruction[0]);
+            update(digest, instruction[1]);
+            update(digest, instruction[2]);
+        }
+
+        byte[] bytes = digest.digest();
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        digest.update((byte) 1);
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Gets the recipe database ready on a background thread: copies it out of the assets if
+ * this is the first run and opens it (running any upgrade). Database users call
+ * {@link #await()} first, so they wait for that work instead of racing it. Once they are
+ * released, the same thread reads the first {@link #PRIME_PAGES} pages of the file and the
+ * first index pages of each table, so early queries find them cached; the rest of the file
+ * is left to be paged in on demand.
+ *
+ * The asset may be shipped as recipes.db, recipes.db.gz or recipes.db.zip; compressed assets
+ * are inflated while they are copied, without a temporary uncompressed copy in memory.
+ */
+public class DatabasePrewarmer implements Runnable {
+
+    private static final String TAG = "DatabasePrewarmer";
+    private static final String ASSET_PATH = "databases/" + RecipeDatabaseHelper.DATABASE_NAME;
+
+    // the schema and the leading table pages; 1 MB at the default 4 KB page size
+    static final int PRIME_PAGES = 256;
+
+    private final Context context;
+    private final RecipeDatabaseHelper helper;
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private volatile long copyNanos = -1;
+    private volatile long openNanos;
+    private volatile long primeNanos;
+
+    public DatabasePrewarmer(Context context, RecipeDatabaseHelper helper) {
+        this.context = context;
+        this.helper = helper;
+    }
+
+    public void start() {
+        Thread thread = new Thread(this, "recipe-db-prewarm");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    /**
+     * Blocks until the database has been copied and opened, successfully or not. Does not
+     * wait for the priming reads.
+     */
+    public void await() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        // the same location SQLiteAssetHelper copies to
+        File databaseFile = new File(context.getApplicationInfo().dataDir + "/databases",
+                RecipeDatabaseHelper.DATABASE_NAME);
+        SQLiteDatabase db;
+        try {
+            if (!databaseFile.exists()) {
+                long start = System.nanoTime();
+                copyFromAssets(databaseFile);
+                copyNanos = System.nanoTime() - start;
+            }
+
+            long start = System.nanoTime();
+            db = helper.getWritableDatabase();
+            openNanos = System.nanoTime() - start;
+            Log.i(TAG, "Database ready: copy=" + (copyNanos < 0 ? "skipped" : toMillis(copyNanos) + " ms")
+                    + " open=" + toMillis(openNanos) + " ms");
+        } catch (Exception e) {
+            // the helper will retry on first use and report the error there
+            Log.e(TAG, "Pre-warming the database failed", e);
+            return;
+        } finally {
+            done.countDown();
+        }
+
+        try {
+            long start = System.nanoTime();
+            prime(databaseFile, db);
+            primeNanos = System.nanoTime() - start;
+            Log.i(TAG, "Database primed in " + toMillis(primeNanos) + " ms");
+        } catch (Exception e) {
+            // queries page in what they need anyway
+            Log.w(TAG, "Priming the database failed", e);
+        }
+    }
+
+    private void copyFromAssets(File databaseFile) throws IOException {
+        InputStream in = openAsset();
+        File directory = databaseFile.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        // copy to a temporary file so an interrupted copy never looks like a database
+        File partial = new File(directory, databaseFile.getName() + ".partial");
+        OutputStream out = new FileOutputStream(partial);
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+        if (!partial.renameTo(databaseFile)) {
+            throw new IOException("Cannot rename " + partial + " to " + databaseFile);
+        }
+    }
+
+    private InputStream openAsset() throws IOException {
+        try {
+            return context.getAssets().open(ASSET_PATH);
+        } catch (FileNotFoundException e) {
+            // fall through to the compressed variants
+        }
+        try {
+            return new GZIPInputStream(context.getAssets().open(ASSET_PATH + ".gz"), 64 * 1024);
+        } catch (FileNotFoundException e) {
+            // fall through
+        }
+        ZipInputStream zip = new ZipInputStream(context.getAssets().open(ASSET_PATH + ".zip"));
+        if (zip.getNextEntry() == null) {
+            zip.close();
+            throw new IOException(ASSET_PATH + ".zip is empty");
+        }
+        return zip;
+    }
+
+    /**
+     * Reads the first {@link #PRIME_PAGES} pages of the file into the page cache, then walks
+     * one path down the index each child query uses, so SQLite's own cache holds the root
+     * and first interior pages. Nothing is scanned in full.
+     */
+    private static void prime(File databaseFile, SQLiteDatabase db) throws IOException {
+        long pageSize = DatabaseUtils.longForQuery(db, "PRAGMA page_size", null);
+        long remaining = Math.min(databaseFile.length(), PRIME_PAGES * pageSize);
+        InputStream in = new FileInputStream(databaseFile);
+        try {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                remaining -= read;
+            }
+        } finally {
+            in.close();
+        }
+
+        readFirstRow(db, FoodTable.TABLE, FoodTable.ID_COLUMN);
+        readFirstRow(db, FoodIngredientTable.TABLE, FoodIngredientTable.RECIPE_ID_COLUMN);
+        readFirstRow(db, FoodInstructionsTable.TABLE, FoodInstructionsTable.RECIPE_ID_COLUMN);
+    }
+
+    private static void readFirstRow(SQLiteDatabase db, String table, String indexedColumn) {
+        Cursor cursor = db.rawQuery("SELECT " + indexedColumn + " FROM " + table
+                + " ORDER BY " + indexedColumn + " LIMIT 1", null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public long getCopyMillis() {
+        return copyNanos < 0 ? -1 : toMillis(copyNanos);
+    }
+
+    public long getOpenMillis() {
+        return toMillis(openNanos);
+    }
+
+    public long getPrimeMillis() {
+        return toMillis(primeNanos);
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
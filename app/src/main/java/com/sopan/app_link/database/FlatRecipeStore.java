@@ -0,0 +1,219 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import com.sopan.app_link.Recipe;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Serves recipes by id from the flat catalog asset exported by the tools module's
+ * FlatCatalogExporter, see there for the file layout.
+ *
+ * The file is stored uncompressed in the APK and memory-mapped. Opening it only checks the
+ * header; a lookup binary searches the sorted id directory comparing raw UTF-8 bytes, and
+ * decodes nothing but the one recipe it returns. No SQLite connection or cursor window is
+ * involved.
+ *
+ * The flat catalog is a snapshot taken at build time. Recipes written through the content
+ * provider or the catalog importer only show up in SQLite.
+ */
+public class FlatRecipeStore {
+
+    private static final String TAG = "FlatRecipeStore";
+
+    public static final String FLAT_CATALOG_ASSET = "recipes.flat";
+
+    private static final int MAGIC = 0x52464331;
+    private static final int HEADER_SIZE = 8;
+    private static final int DIRECTORY_ENTRY_SIZE = 8;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static FlatRecipeStore sInstance;
+    private static boolean sOpened;
+
+    private final ByteBuffer catalog;
+    private final int recipeCount;
+
+    /**
+     * Returns the store of the flat catalog bundled with the app, or null if the app was
+     * built without one or it cannot be read. The first call maps the file, so make it off
+     * the main thread.
+     */
+    public static synchronized FlatRecipeStore getInstance(Context context) {
+        if (!sOpened) {
+            sOpened = true;
+            try {
+                sInstance = open(context.getApplicationContext().getAssets(), FLAT_CATALOG_ASSET);
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot open the flat catalog", e);
+            }
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the store if {@link #getInstance} has opened it already, otherwise null.
+     */
+    public static synchronized FlatRecipeStore peekInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Maps the flat catalog asset. Returns null if the app was built without one.
+     */
+    public static FlatRecipeStore open(AssetManager assets, String assetName) throws IOException {
+        AssetFileDescriptor descriptor;
+        try {
+            descriptor = assets.openFd(assetName);
+        } catch (FileNotFoundException e) {
+            Log.i(TAG, "No flat catalog " + assetName);
+            return null;
+        }
+        try {
+            FileInputStream in = descriptor.createInputStream();
+            try {
+                // the mapping stays valid after the channel is closed
+                MappedByteBuffer catalog = in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                        descriptor.getStartOffset(), descriptor.getLength());
+                return new FlatRecipeStore(catalog);
+            } finally {
+                in.close();
+            }
+        } finally {
+            descriptor.close();
+        }
+    }
+
+    public FlatRecipeStore(ByteBuffer catalog) throws IOException {
+        this.catalog = catalog;
+        if (catalog.limit() < HEADER_SIZE || catalog.getInt(0) != MAGIC) {
+            throw new IOException("Not a flat recipe catalog");
+        }
+        recipeCount = catalog.getInt(4);
+        if (recipeCount < 0 || HEADER_SIZE + (long) recipeCount * DIRECTORY_ENTRY_SIZE > catalog.limit()) {
+            throw new IOException("Flat recipe catalog directory out of bounds");
+        }
+    }
+
+    public int getRecipeCount() {
+        return recipeCount;
+    }
+
+    /**
+     * Returns whether there is a recipe with the given id.
+     */
+    public boolean contains(String recipeId) {
+        return indexOf(recipeId.getBytes(UTF_8)) >= 0;
+    }
+
+    /**
+     * Returns the recipe with the given id, with its ingredients and steps, or null if there
+     * is no such recipe.
+     */
+    public Recipe getRecipe(String recipeId) {
+        int index = indexOf(recipeId.getBytes(UTF_8));
+        if (index < 0) {
+            return null;
+        }
+        // a private position, so lookups can run on any number of threads
+        ByteBuffer record = catalog.duplicate();
+        record.position(catalog.getInt(HEADER_SIZE + index * DIRECTORY_ENTRY_SIZE + 4));
+
+        Recipe recipe = new Recipe(recipeId);
+        recipe.setTitle(readString(record));
+        recipe.setDescription(readString(record));
+        recipe.setPrepTime(readString(record));
+        recipe.setPhoto(readString(record));
+        int ingredientCount = record.getInt();
+        for (int i = 0; i < ingredientCount; i++) {
+            Recipe.Ingredient ingredient = new Recipe.Ingredient();
+            ingredient.setId(record.getLong());
+            ingredient.setAmount(readString(record));
+            ingredient.setDescription(readString(record));
+            recipe.addIngredient(ingredient);
+        }
+        int stepCount = record.getInt();
+        for (int i = 0; i < stepCount; i++) {
+            Recipe.Step step = new Recipe.Step();
+            step.setDescription(readString(record));
+            step.setPhoto(readString(record));
+            recipe.addStep(step);
+        }
+        return recipe;
+    }
+
+    /**
+     * Binary searches the id directory.
+     *
+     * @return The directory index of the recipe, or -1 if there is none.
+     */
+    private int indexOf(byte[] recipeId) {
+        int low = 0;
+        int high = recipeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int order = compareId(catalog.getInt(HEADER_SIZE + mid * DIRECTORY_ENTRY_SIZE), recipeId);
+            if (order < 0) {
+                low = mid + 1;
+            } else if (order > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the id stored at the given offset with the given one, byte by byte and
+     * unsigned, the order the exporter sorted the ids in.
+     */
+    private int compareId(int offset, byte[] recipeId) {
+        int length = catalog.getInt(offset);
+        int start = offset + 4;
+        int common = Math.min(length, recipeId.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (catalog.get(start + i) & 0xff) - (recipeId[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - recipeId.length;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
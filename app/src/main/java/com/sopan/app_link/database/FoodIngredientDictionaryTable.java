@@ -0,0 +1,32 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+/**
+ * Every distinct ingredient of the catalog, under the name {@link IngredientParser#normalizeName}
+ * makes of its description. Ingredient rows point here by
+ * {@link FoodIngredientTable#INGREDIENT_ID_COLUMN}, and the (ingredient_id, recipe_id) index
+ * on them is what recipe/containing queries run on. Names are never removed, so ids stay
+ * stable across imports.
+ */
+public class FoodIngredientDictionaryTable {
+    public static final String TABLE = "ingredient_dictionary";
+    public static final String ID_COLUMN = "_id";
+    public static final String ID = TABLE + "." + ID_COLUMN;
+    public static final String NAME_COLUMN = "name";
+    public static final String NAME = TABLE + "." + NAME_COLUMN;
+}
@@ -29,4 +29,11 @@ public class FoodIngredientTable {
     public static final String AMOUNT = TABLE + "." + AMOUNT_COLUMN;
     public static final String DESCRIPTION_COLUMN = "description";
     public static final String DESCRIPTION = TABLE + "." + DESCRIPTION_COLUMN;
+    // the description interned in FoodIngredientDictionaryTable, and the amount parsed by IngredientParser
+    public static final String INGREDIENT_ID_COLUMN = "ingredient_id";
+    public static final String INGREDIENT_ID = TABLE + "." + INGREDIENT_ID_COLUMN;
+    public static final String QUANTITY_COLUMN = "quantity";
+    public static final String QUANTITY = TABLE + "." + QUANTITY_COLUMN;
+    public static final String UNIT_COLUMN = "unit";
+    public static final String UNIT = TABLE + "." + UNIT_COLUMN;
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+/**
+ * Columns of the aggregate recipe cursor. The header row, the ingredient rows and the
+ * step rows are returned together and told apart by {@link #ROW_TYPE_COLUMN}.
+ */
+public class FoodRecipeFullTable {
+    public static final String ROW_TYPE_COLUMN = "row_type";
+    public static final String POSITION_COLUMN = "position";
+    public static final String ID_COLUMN = "_id";
+    public static final String TITLE_COLUMN = "title";
+    public static final String DESCRIPTION_COLUMN = "description";
+    public static final String PREP_TIME_COLUMN = "prep_time";
+    public static final String PHOTO_COLUMN = "photo";
+    public static final String AMOUNT_COLUMN = "amount";
+    // ingredient rows only: the parsed amount and the dictionary entry, as stored
+    public static final String QUANTITY_COLUMN = "quantity";
+    public static final String UNIT_COLUMN = "unit";
+    public static final String INGREDIENT_ID_COLUMN = "ingredient_id";
+    public static final String INGREDIENT_NAME_COLUMN = "ingredient_name";
+    // only in the multi-recipe cursor of the recipe/batch URI, the recipe a row belongs to
+    public static final String RECIPE_ID_COLUMN = "recipe_id";
+
+    public static final int ROW_TYPE_RECIPE = 0;
+    public static final int ROW_TYPE_INGREDIENT = 1;
+    public static final int ROW_TYPE_STEP = 2;
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+/**
+ * Full-text index over recipe titles, descriptions and ingredient descriptions. Each row's
+ * docid is the search_id of its recipe. The triggers below keep the title and description in
+ * step with the recipes table; the ingredients column is rebuilt by the writers through
+ * {@link RecipeSearchIndex}, once per recipe they write rather than once per ingredient row.
+ *
+ * recipes has a TEXT primary key, so its rowid is implicit and VACUUM may renumber it. The
+ * documents are keyed on the stored INTEGER search_id instead, which the insert trigger
+ * assigns as one more than the largest in use and which never changes afterwards.
+ */
+public class FoodSearchTable {
+    public static final String TABLE = "recipes_fts";
+    public static final String DOCID_COLUMN = "docid";
+    public static final String DOCID = TABLE + "." + DOCID_COLUMN;
+    public static final String TITLE_COLUMN = "title";
+    public static final String DESCRIPTION_COLUMN = "description";
+    public static final String INGREDIENTS_COLUMN = "ingredients";
+
+    private static final String INGREDIENTS_OF = "(SELECT group_concat(" + FoodIngredientTable.DESCRIPTION_COLUMN
+            + ", ' ') FROM " + FoodIngredientTable.TABLE + " WHERE " + FoodIngredientTable.RECIPE_ID_COLUMN + " = %s)";
+
+    private static final String ASSIGN_SEARCH_ID = "UPDATE " + FoodTable.TABLE + " SET "
+            + FoodTable.SEARCH_ID_COLUMN + " = (SELECT ifnull(max(" + FoodTable.SEARCH_ID_COLUMN + "), 0) + 1 FROM "
+            + FoodTable.TABLE + ") WHERE " + FoodTable.ID_COLUMN + " = new." + FoodTable.ID_COLUMN + " AND "
+            + FoodTable.SEARCH_ID_COLUMN + " IS NULL;";
+
+    private static final String INSERT_RECIPE = "INSERT INTO " + TABLE + " (" + DOCID_COLUMN + ", "
+            + TITLE_COLUMN + ", " + DESCRIPTION_COLUMN + ", " + INGREDIENTS_COLUMN + ") SELECT "
+            + FoodTable.SEARCH_ID_COLUMN + ", new." + FoodTable.TITLE_COLUMN + ", new." + FoodTable.DESCRIPTION_COLUMN
+            + ", " + String.format(INGREDIENTS_OF, "new." + FoodTable.ID_COLUMN) + " FROM " + FoodTable.TABLE
+            + " WHERE " + FoodTable.ID_COLUMN + " = new." + FoodTable.ID_COLUMN + ";";
+
+    private static final String DELETE_RECIPE = "DELETE FROM " + TABLE + " WHERE " + DOCID_COLUMN + " = old."
+            + FoodTable.SEARCH_ID_COLUMN + ";";
+
+    /**
+     * Rewrites the ingredients of one recipe's document. Binds the recipe id.
+     */
+    public static final String REINDEX_INGREDIENTS = "UPDATE " + TABLE + " SET " + INGREDIENTS_COLUMN + " = "
+            + String.format(INGREDIENTS_OF, "?1") + " WHERE " + DOCID_COLUMN + " = (SELECT "
+            + FoodTable.SEARCH_ID_COLUMN + " FROM " + FoodTable.TABLE + " WHERE " + FoodTable.ID_COLUMN + " = ?1)";
+
+    /**
+     * Refills the whole index from the recipe and ingredient tables.
+     */
+    public static final String[] REBUILD = {
+            "DELETE FROM " + TABLE,
+            "INSERT INTO " + TABLE + " (" + DOCID_COLUMN + ", " + TITLE_COLUMN + ", " + DESCRIPTION_COLUMN + ", "
+                    + INGREDIENTS_COLUMN + ") SELECT " + FoodTable.SEARCH_ID_COLUMN + ", " + FoodTable.TITLE_COLUMN
+                    + ", " + FoodTable.DESCRIPTION_COLUMN + ", "
+                    + String.format(INGREDIENTS_OF, FoodTable.TABLE + "." + FoodTable.ID_COLUMN)
+                    + " FROM " + FoodTable.TABLE,
+    };
+
+    /**
+     * Triggers that keep the index in sync. They are created from code rather than from an
+     * upgrade script because SQLiteAssetHelper splits scripts on every semicolon. The update
+     * trigger only fires for the columns the document is built from, so writes to columns
+     * such as content_hash or prep_time_minutes leave the index alone. search_id is not one of
+     * them: only the insert trigger writes it.
+     */
+    public static final String[] CREATE_TRIGGERS = {
+            "CREATE TRIGGER IF NOT EXISTS recipes_fts_insert AFTER INSERT ON " + FoodTable.TABLE
+                    + " BEGIN " + ASSIGN_SEARCH_ID + " " + INSERT_RECIPE + " END",
+            "CREATE TRIGGER IF NOT EXISTS recipes_fts_update AFTER UPDATE OF " + FoodTable.ID_COLUMN + ", "
+                    + FoodTable.TITLE_COLUMN + ", " + FoodTable.DESCRIPTION_COLUMN + " ON " + FoodTable.TABLE
+                    + " BEGIN " + DELETE_RECIPE + " " + INSERT_RECIPE + " END",
+            "CREATE TRIGGER IF NOT EXISTS recipes_fts_delete AFTER DELETE ON " + FoodTable.TABLE
+                    + " BEGIN " + DELETE_RECIPE + " END",
+    };
+}
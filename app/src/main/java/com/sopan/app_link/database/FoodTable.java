@@ -34,4 +34,12 @@ public class FoodTable {
     public static final String PREP_TIME = TABLE + "." + PREP_TIME_COLUMN;
     public static final String DESCRIPTION_COLUMN = "description";
     public static final String DESCRIPTION = TABLE + "." + DESCRIPTION_COLUMN;
+    public static final String CONTENT_HASH_COLUMN = "content_hash";
+    public static final String CONTENT_HASH = TABLE + "." + CONTENT_HASH_COLUMN;
+    // prep_time parsed by PrepTimeParser, NULL if it does not parse
+    public static final String PREP_TIME_MINUTES_COLUMN = "prep_time_minutes";
+    public static final String PREP_TIME_MINUTES = TABLE + "." + PREP_TIME_MINUTES_COLUMN;
+    // docid of the recipe's search document, assigned by the search index insert trigger
+    public static final String SEARCH_ID_COLUMN = "search_id";
+    public static final String SEARCH_ID = TABLE + "." + SEARCH_ID_COLUMN;
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns ingredient descriptions in {@link FoodIngredientDictionaryTable} for one run of
+ * writes, and fills in the parsed columns of the ingredient rows being written. Ids already
+ * looked up are remembered, so a catalog with a few hundred distinct ingredients costs a
+ * few hundred lookups however many rows it writes.
+ *
+ * Use it inside the transaction that writes the rows, and close it afterwards.
+ */
+public class IngredientDictionary {
+
+    public static final long NO_ID = -1;
+
+    private final SQLiteStatement selectId;
+    private final SQLiteStatement insertName;
+    private final Map<String, Long> ids = new HashMap<String, Long>();
+
+    public IngredientDictionary(SQLiteDatabase db) {
+        selectId = db.compileStatement("SELECT " + FoodIngredientDictionaryTable.ID_COLUMN + " FROM "
+                + FoodIngredientDictionaryTable.TABLE + " WHERE " + FoodIngredientDictionaryTable.NAME_COLUMN + " = ?");
+        insertName = db.compileStatement("INSERT INTO " + FoodIngredientDictionaryTable.TABLE + " ("
+                + FoodIngredientDictionaryTable.NAME_COLUMN + ") VALUES (?)");
+    }
+
+    /**
+     * Returns the id of the ingredient a description names, adding the ingredient if it is
+     * new, or {@link #NO_ID} for a blank description.
+     */
+    public long getId(String description) {
+        String name = IngredientParser.normalizeName(description);
+        if (name == null) {
+            return NO_ID;
+        }
+        Long id = ids.get(name);
+        if (id == null) {
+            selectId.bindString(1, name);
+            try {
+                id = selectId.simpleQueryForLong();
+            } catch (SQLiteDoneException e) {
+                insertName.bindString(1, name);
+                id = insertName.executeInsert();
+            }
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Binds the ingredient id, quantity and unit of an ingredient row to three consecutive
+     * parameters of a statement, starting at the given index.
+     */
+    public void bindParsedColumns(SQLiteStatement statement, int index, String amount, String description) {
+        long id = getId(description);
+        if (id == NO_ID) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, id);
+        }
+        double quantity = IngredientParser.parseQuantity(amount);
+        if (Double.isNaN(quantity)) {
+            statement.bindNull(index + 1);
+        } else {
+            statement.bindDouble(index + 1, quantity);
+        }
+        String unit = IngredientParser.parseUnit(amount);
+        if (unit == null) {
+            statement.bindNull(index + 2);
+        } else {
+            statement.bindString(index + 2, unit);
+        }
+    }
+
+    /**
+     * Returns a copy of an ingredient row's values with the parsed columns of the amount and
+     * description it sets added, or the values as they are if it sets neither.
+     */
+    public ContentValues withParsedColumns(ContentValues values) {
+        boolean amount = values.containsKey(FoodIngredientTable.AMOUNT_COLUMN);
+        boolean description = values.containsKey(FoodIngredientTable.DESCRIPTION_COLUMN);
+        if (!amount && !description) {
+            return values;
+        }
+        ContentValues copy = new ContentValues(values);
+        if (description) {
+            long id = getId(values.getAsString(FoodIngredientTable.DESCRIPTION_COLUMN));
+            if (id == NO_ID) {
+                copy.putNull(FoodIngredientTable.INGREDIENT_ID_COLUMN);
+            } else {
+                copy.put(FoodIngredientTable.INGREDIENT_ID_COLUMN, id);
+            }
+        }
+        if (amount) {
+            String text = values.getAsString(FoodIngredientTable.AMOUNT_COLUMN);
+            double quantity = IngredientParser.parseQuantity(text);
+            if (Double.isNaN(quantity)) {
+                copy.putNull(FoodIngredientTable.QUANTITY_COLUMN);
+            } else {
+                copy.put(FoodIngredientTable.QUANTITY_COLUMN, quantity);
+            }
+            copy.put(FoodIngredientTable.UNIT_COLUMN, IngredientParser.parseUnit(text));
+        }
+        return copy;
+    }
+
+    public void close() {
+        selectId.close();
+        insertName.close();
+    }
+}
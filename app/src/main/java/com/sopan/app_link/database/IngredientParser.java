@@ -0,0 +1,200 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import java.util.Locale;
+
+/**
+ * Parses the free-text ingredient rows of the catalog: the amount, like "1 1/2 lbs", "2-3 T"
+ * or "pinch", into a quantity and a unit, and the description into the name it is interned
+ * under in {@link FoodIngredientDictionaryTable}.
+ *
+ * A quantity is a whole or decimal number, a fraction like "1/2" or a vulgar fraction
+ * character, or a whole number followed by a fraction, like "1 1/2". For a range like "2-3" or "4 to 6" the
+ * quantity is its lower end. The unit is whatever follows the quantity, as written, since
+ * the catalog uses "T" and "tsp" side by side.
+ */
+public class IngredientParser {
+
+    /**
+     * Returns the key an ingredient description is interned under: trimmed, lower case and
+     * with runs of white space collapsed, or null if the description is blank.
+     */
+    public static String normalizeName(String description) {
+        if (description == null) {
+            return null;
+        }
+        StringBuilder name = new StringBuilder(description.length());
+        boolean space = false;
+        for (int i = 0; i < description.length(); i++) {
+            char c = description.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = name.length() > 0;
+            } else {
+                if (space) {
+                    name.append(' ');
+                    space = false;
+                }
+                name.append(c);
+            }
+        }
+        return name.length() == 0 ? null : name.toString().toLowerCase(Locale.US);
+    }
+
+    /**
+     * Returns the quantity at the start of an amount, or NaN if it does not start with one.
+     */
+    public static double parseQuantity(String amount) {
+        double[] quantity = new double[1];
+        return amount != null && scanQuantity(amount, quantity) > 0 ? quantity[0] : Double.NaN;
+    }
+
+    /**
+     * Returns the unit of an amount, the text after its quantity, or null if there is none.
+     */
+    public static String parseUnit(String amount) {
+        if (amount == null) {
+            return null;
+        }
+        String unit = amount.substring(scanQuantity(amount, new double[1])).trim();
+        return unit.isEmpty() ? null : unit;
+    }
+
+    /**
+     * Reads the quantity, and the rest of a range, at the start of the amount into
+     * quantity[0]. Returns the index after them, or 0 if the amount starts with no number.
+     */
+    private static int scanQuantity(String amount, double[] quantity) {
+        int i = skipSpaces(amount, 0);
+        int end = scanNumber(amount, i, quantity);
+        if (end == i) {
+            return 0;
+        }
+        // the upper end of a range only moves the unit along
+        int next = skipSpaces(amount, end);
+        if (next < amount.length() && (amount.charAt(next) == '-' || amount.charAt(next) == '\u2013')) {
+            next = skipSpaces(amount, next + 1);
+        } else if (amount.regionMatches(true, next, "to ", 0, 3)) {
+            next = skipSpaces(amount, next + 3);
+        } else {
+            return end;
+        }
+        int rangeEnd = scanNumber(amount, next, new double[1]);
+        return rangeEnd == next ? end : rangeEnd;
+    }
+
+    // a number, fraction or mixed number starting at i; returns i if there is none
+    private static int scanNumber(String text, int i, double[] value) {
+        int end = scanDecimal(text, i, value);
+        if (end == i) {
+            return scanFraction(text, i, value);
+        }
+        // "1/2" is a fraction rather than a whole number
+        if (end < text.length() && text.charAt(end) == '/') {
+            return scanFraction(text, i, value);
+        }
+        // "1 1/2", or a whole number directly followed by a vulgar fraction
+        double whole = value[0];
+        int fractionStart = skipSpaces(text, end);
+        double[] fraction = new double[1];
+        int fractionEnd = scanFraction(text, fractionStart, fraction);
+        if (fractionEnd > fractionStart && whole == Math.floor(whole)) {
+            value[0] = whole + fraction[0];
+            return fractionEnd;
+        }
+        return end;
+    }
+
+    private static int scanFraction(String text, int i, double[] value) {
+        if (i < text.length()) {
+            double vulgar = vulgarFraction(text.charAt(i));
+            if (!Double.isNaN(vulgar)) {
+                value[0] = vulgar;
+                return i + 1;
+            }
+        }
+        double[] numerator = new double[1];
+        int slash = scanDigits(text, i, numerator);
+        if (slash == i || slash >= text.length() || text.charAt(slash) != '/') {
+            return i;
+        }
+        double[] denominator = new double[1];
+        int end = scanDigits(text, slash + 1, denominator);
+        if (end == slash + 1 || denominator[0] == 0) {
+            return i;
+        }
+        value[0] = numerator[0] / denominator[0];
+        return end;
+    }
+
+    private static int scanDecimal(String text, int i, double[] value) {
+        int end = scanDigits(text, i, value);
+        if (end == i || end + 1 >= text.length() || text.charAt(end) != '.'
+                || !Character.isDigit(text.charAt(end + 1))) {
+            return end;
+        }
+        int fractionEnd = end + 1;
+        while (fractionEnd < text.length() && Character.isDigit(text.charAt(fractionEnd))) {
+            fractionEnd++;
+        }
+        value[0] = Double.parseDouble(text.substring(i, fractionEnd));
+        return fractionEnd;
+    }
+
+    private static int scanDigits(String text, int i, double[] value) {
+        double digits = 0;
+        int end = i;
+        while (end < text.length() && text.charAt(end) >= '0' && text.charAt(end) <= '9') {
+            digits = digits * 10 + (text.charAt(end) - '0');
+            end++;
+        }
+        value[0] = digits;
+        return end;
+    }
+
+    private static double vulgarFraction(char c) {
+        switch (c) {
+            case '\u00bd':
+                return 1.0 / 2;
+            case '\u2153':
+                return 1.0 / 3;
+            case '\u2154':
+                return 2.0 / 3;
+            case '\u00bc':
+                return 1.0 / 4;
+            case '\u00be':
+                return 3.0 / 4;
+            case '\u215b':
+                return 1.0 / 8;
+            case '\u215c':
+                return 3.0 / 8;
+            case '\u215d':
+                return 5.0 / 8;
+            case '\u215e':
+                return 7.0 / 8;
+            default:
+                return Double.NaN;
+        }
+    }
+
+    private static int skipSpaces(String text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
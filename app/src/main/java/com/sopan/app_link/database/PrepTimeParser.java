@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import java.util.Locale;
+
+/**
+ * Parses the free-text prep times of the catalog, like "35 minutes", "1 hour" or
+ * "1 hour 30 minutes", into minutes for {@link FoodTable#PREP_TIME_MINUTES_COLUMN}.
+ *
+ * A prep time is a sequence of numbers, each followed by an hour or minute unit
+ * (h, hr, hrs, hour, hours, m, min, mins, minute, minutes); a number without a unit is
+ * minutes. Numbers may have a fraction, as in "1.5 hours". Anything else is
+ * {@link #UNKNOWN}, stored as NULL.
+ */
+public class PrepTimeParser {
+
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Returns the prep time in minutes, rounded to the nearest minute, or {@link #UNKNOWN}.
+     */
+    public static int parseMinutes(String prepTime) {
+        if (prepTime == null) {
+            return UNKNOWN;
+        }
+        double minutes = 0;
+        boolean any = false;
+        int length = prepTime.length();
+        int i = skipSpaces(prepTime, 0);
+        while (i < length) {
+            // a number
+            int numberStart = i;
+            while (i < length && (Character.isDigit(prepTime.charAt(i)) || prepTime.charAt(i) == '.')) {
+                i++;
+            }
+            if (i == numberStart) {
+                return UNKNOWN;
+            }
+            double value;
+            try {
+                value = Double.parseDouble(prepTime.substring(numberStart, i));
+            } catch (NumberFormatException e) {
+                return UNKNOWN;
+            }
+
+            // its unit, if any
+            i = skipSpaces(prepTime, i);
+            int unitStart = i;
+            while (i < length && Character.isLetter(prepTime.charAt(i))) {
+                i++;
+            }
+            int unit = unitMinutes(prepTime.substring(unitStart, i));
+            if (unit == UNKNOWN) {
+                return UNKNOWN;
+            }
+            minutes += value * unit;
+            any = true;
+
+            i = skipSpaces(prepTime, i);
+            // "1 hour, 30 minutes" and "1 hour and 30 minutes"
+            if (i < length && prepTime.charAt(i) == ',') {
+                i = skipSpaces(prepTime, i + 1);
+            }
+            if (prepTime.regionMatches(true, i, "and ", 0, 4)) {
+                i = skipSpaces(prepTime, i + 4);
+            }
+        }
+        return any && minutes <= Integer.MAX_VALUE ? (int) Math.round(minutes) : UNKNOWN;
+    }
+
+    private static int skipSpaces(String text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int unitMinutes(String unit) {
+        if (unit.isEmpty()) {
+            return 1;
+        }
+        String lower = unit.toLowerCase(Locale.US);
+        if (lower.equals("m") || lower.equals("min") || lower.equals("mins")
+                || lower.equals("minute") || lower.equals("minutes")) {
+            return 1;
+        } else if (lower.equals("h") || lower.equals("hr") || lower.equals("hrs")
+                || lower.equals("hour") || lower.equals("hours")) {
+            return 60;
+        }
+        return UNKNOWN;
+    }
+}
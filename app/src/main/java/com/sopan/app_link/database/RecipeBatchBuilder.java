@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assembles the cursor of the recipe/batch URI: the requested recipes in request order,
+ * each as the rows of {@link FoodRecipeFullTable} plus {@link FoodRecipeFullTable#RECIPE_ID_COLUMN}.
+ *
+ * The ids are queried in chunks of {@link #CHUNK_SIZE} with the IN-list statements of
+ * {@link RecipeStatements}. A short last chunk repeats its last id, so every chunk runs the
+ * same SQL text and reuses one compiled statement. The rows come back in table order and
+ * are put in request order here. Ids without a recipe are left out.
+ */
+public class RecipeBatchBuilder {
+
+    public static final int CHUNK_SIZE = 50;
+
+    public static final String[] COLUMNS = {FoodRecipeFullTable.RECIPE_ID_COLUMN,
+            FoodRecipeFullTable.ROW_TYPE_COLUMN, FoodRecipeFullTable.POSITION_COLUMN,
+            FoodRecipeFullTable.ID_COLUMN, FoodRecipeFullTable.TITLE_COLUMN,
+            FoodRecipeFullTable.DESCRIPTION_COLUMN, FoodRecipeFullTable.PREP_TIME_COLUMN,
+            FoodRecipeFullTable.PHOTO_COLUMN, FoodRecipeFullTable.AMOUNT_COLUMN,
+            FoodRecipeFullTable.QUANTITY_COLUMN, FoodRecipeFullTable.UNIT_COLUMN,
+            FoodRecipeFullTable.INGREDIENT_ID_COLUMN, FoodRecipeFullTable.INGREDIENT_NAME_COLUMN};
+
+    private final List<String> recipeIds;
+    private final Map<String, Object[]> recipes = new HashMap<String, Object[]>();
+    private final Map<String, List<Object[]>> children = new HashMap<String, List<Object[]>>();
+    private int childCount;
+
+    /**
+     * @param recipeIds The requested ids. Repeated ids are only returned once, at their
+     *                  first position.
+     */
+    public RecipeBatchBuilder(List<String> recipeIds) {
+        this.recipeIds = new ArrayList<String>(new LinkedHashSet<String>(recipeIds));
+    }
+
+    public List<String> getRecipeIds() {
+        return recipeIds;
+    }
+
+    /**
+     * Returns true once the recipe's header row has been added.
+     */
+    public boolean contains(String recipeId) {
+        return recipes.containsKey(recipeId);
+    }
+
+    public int getChunkCount() {
+        return (recipeIds.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    /**
+     * Returns the ids to bind to a chunk's statement, padded to {@link #CHUNK_SIZE}.
+     */
+    public String[] getChunkArgs(int chunk) {
+        String[] args = new String[CHUNK_SIZE];
+        int start = chunk * CHUNK_SIZE;
+        int end = Math.min(start + CHUNK_SIZE, recipeIds.size());
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            args[i] = recipeIds.get(Math.min(start + i, end - 1));
+        }
+        return args;
+    }
+
+    /**
+     * Adds the rows of {@link RecipeStatements#recipesByIds}.
+     */
+    public void addRecipes(Cursor cursor) {
+        while (cursor.moveToNext()) {
+            String recipeId = cursor.getString(0);
+            recipes.put(recipeId, new Object[]{recipeId, FoodRecipeFullTable.ROW_TYPE_RECIPE, 0, recipeId,
+                    cursor.getString(1), cursor.getString(2), cursor.getString(3), cursor.getString(4), null,
+                    null, null, null, null});
+        }
+    }
+
+    /**
+     * Adds the rows of {@link RecipeStatements#ingredientsByRecipes}.
+     */
+    public void addIngredients(Cursor cursor) {
+        while (cursor.moveToNext()) {
+            long id = cursor.getLong(1);
+            addChild(cursor.getString(0), new Object[]{cursor.getString(0), FoodRecipeFullTable.ROW_TYPE_INGREDIENT,
+                    id, id, null, cursor.getString(3), null, null, cursor.getString(2),
+                    cursor.isNull(4) ? null : cursor.getDouble(4), cursor.getString(5),
+                    cursor.isNull(6) ? null : cursor.getLong(6), cursor.getString(7)});
+        }
+    }
+
+    /**
+     * Adds the rows of {@link RecipeStatements#instructionsByRecipes}.
+     */
+    public void addSteps(Cursor cursor) {
+        while (cursor.moveToNext()) {
+            addChild(cursor.getString(0), new Object[]{cursor.getString(0), FoodRecipeFullTable.ROW_TYPE_STEP,
+                    cursor.getLong(1), null, null, cursor.getString(2), null, cursor.getString(3), null,
+                    null, null, null, null});
+        }
+    }
+
+    /**
+     * Adds a row of {@link #COLUMNS} under its recipe.
+     */
+    private void addChild(String recipeId, Object[] row) {
+        List<Object[]> rows = children.get(recipeId);
+        if (rows == null) {
+            rows = new ArrayList<Object[]>();
+            children.put(recipeId, rows);
+        }
+        // a recipe's ingredients are added before its steps, so its rows stay in cursor order
+        rows.add(row);
+        childCount++;
+    }
+
+    public MatrixCursor build() {
+        MatrixCursor cursor = new MatrixCursor(COLUMNS, recipes.size() + childCount);
+        for (String recipeId : recipeIds) {
+            Object[] recipe = recipes.get(recipeId);
+            if (recipe == null) {
+                continue;
+            }
+            cursor.addRow(recipe);
+            List<Object[]> rows = children.get(recipeId);
+            if (rows != null) {
+                for (Object[] row : rows) {
+                    cursor.addRow(row);
+                }
+            }
+        }
+        return cursor;
+    }
+}
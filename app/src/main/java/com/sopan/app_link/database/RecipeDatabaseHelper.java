@@ -0,0 +1,248 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.readystatesoftware.sqliteasset.SQLiteAssetHelper;
+
+import java.io.File;
+
+/**
+ * This helper loads the SQLite database included with the app
+ * in the assets folder.
+ *
+ * Schema changes ship as upgrade scripts next to the asset, named
+ * recipes.db_upgrade_&lt;from&gt;-&lt;to&gt;.sql. The bundled asset itself is kept at
+ * {@link #DATABASE_VERSION} so fresh installs need no upgrade.
+ *
+ * Version history:
+ * 1 - initial catalog
+ * 2 - indexes on the recipe_id foreign keys of the ingredient and step tables
+ * 3 - (title, _id) index on recipes for keyset paging of the recipe list
+ * 4 - recipes_fts full-text index and the triggers that keep it in sync
+ * 5 - recipes.content_hash, used by the catalog importer to skip unchanged recipes
+ * 6 - recipes.prep_time_minutes and its index, for filtering and sorting by prep time
+ * 7 - ingredient_dictionary, the parsed ingredient columns and the (ingredient_id, recipe_id)
+ *     index behind recipe/containing
+ * 8 - no search triggers on recipe_ingredients, and the recipes update trigger limited to the
+ *     indexed columns; see {@link RecipeSearchIndex}
+ * 9 - recipes.search_id, the stored docid of each recipe's search document, so VACUUM
+ *     renumbering the implicit rowid cannot detach documents from their recipes
+ *
+ * The database can run in write-ahead logging mode, see {@link #setWriteAheadLoggingEnabled}.
+ * SQLiteDatabase then keeps its own pool of reader connections, so queries from other
+ * threads run beside a write transaction instead of waiting for it.
+ */
+public class RecipeDatabaseHelper extends SQLiteAssetHelper {
+
+    public static final String DATABASE_NAME = "recipes.db";
+    private static final int DATABASE_VERSION = 9;
+
+    // the id filter is sized for twice the catalog it is built from
+    private static final int MIN_ID_FILTER_CAPACITY = 1024;
+    private static final double ID_FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    private volatile RecipeIdFilter recipeIdFilter;
+
+    private boolean writeAheadLogging;
+    private int maxSqlCacheSize;
+
+    public RecipeDatabaseHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    /**
+     * Opens the catalog at the given path instead of the app's own copy, for example one
+     * written by the tools module's CatalogGenerator. The file must already exist, since
+     * there is no asset of that name to copy, and is upgraded like the app's own copy.
+     */
+    public RecipeDatabaseHelper(Context context, File databaseFile) {
+        super(context, databaseFile.getName(), databaseFile.getParent(), null, DATABASE_VERSION);
+    }
+
+    /**
+     * Switches the database to write-ahead logging, or back to the rollback journal, the next
+     * time it is opened. SQLiteAssetHelper opens the database itself, so this is applied in
+     * {@link #onOpen} rather than by SQLiteOpenHelper.
+     */
+    @Override
+    public synchronized void setWriteAheadLoggingEnabled(boolean enabled) {
+        super.setWriteAheadLoggingEnabled(enabled);
+        writeAheadLogging = enabled;
+    }
+
+    /**
+     * Sets the number of compiled statements each connection keeps, at most
+     * {@link SQLiteDatabase#MAX_SQL_CACHE_SIZE}. SQLiteAssetHelper opens the database itself,
+     * so this is applied in {@link #onOpen}; 0 keeps SQLite's default.
+     */
+    public synchronized void setMaxSqlCacheSize(int size) {
+        maxSqlCacheSize = size;
+    }
+
+    public synchronized int getMaxSqlCacheSize() {
+        return maxSqlCacheSize;
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (maxSqlCacheSize > 0) {
+            db.setMaxSqlCacheSize(maxSqlCacheSize);
+        }
+        if (!db.isReadOnly()) {
+            // the journal mode is stored in the file, so turning it off has to be done too
+            if (writeAheadLogging) {
+                db.enableWriteAheadLogging();
+            } else {
+                db.disableWriteAheadLogging();
+            }
+        }
+        if (recipeIdFilter == null) {
+            rebuildRecipeIdFilter(db);
+        }
+    }
+
+    /**
+     * Returns the filter of existing recipe ids, or null until the database has been opened.
+     */
+    public RecipeIdFilter getRecipeIdFilter() {
+        return recipeIdFilter;
+    }
+
+    /**
+     * Adds a recipe id written through the given database to the id filter. Call it after the
+     * row is written, or inside the transaction that writes it, so a concurrent rebuild
+     * cannot miss the id.
+     */
+    public void addRecipeId(SQLiteDatabase db, String recipeId) {
+        RecipeIdFilter filter = recipeIdFilter;
+        if (filter == null) {
+            return;
+        }
+        filter.add(recipeId);
+        if (filter.isSaturated()) {
+            rebuildRecipeIdFilter(db);
+        }
+    }
+
+    /**
+     * Builds a fresh id filter from the recipes table. The scan holds a write transaction so
+     * no other connection can add a recipe between the scan and the swap.
+     */
+    public synchronized void rebuildRecipeIdFilter(SQLiteDatabase db) {
+        boolean transaction = !db.isReadOnly();
+        if (transaction) {
+            db.beginTransaction();
+        }
+        try {
+            long count = DatabaseUtils.queryNumEntries(db, FoodTable.TABLE);
+            RecipeIdFilter filter = new RecipeIdFilter(
+                    (int) Math.max(MIN_ID_FILTER_CAPACITY, count * 2), ID_FILTER_FALSE_POSITIVE_RATE);
+            Cursor cursor = db.rawQuery("SELECT " + FoodTable.ID_COLUMN + " FROM " + FoodTable.TABLE, null);
+            try {
+                while (cursor.moveToNext()) {
+                    filter.add(cursor.getString(0));
+                }
+            } finally {
+                cursor.close();
+            }
+            recipeIdFilter = filter;
+            if (transaction) {
+                db.setTransactionSuccessful();
+            }
+        } finally {
+            if (transaction) {
+                db.endTransaction();
+            }
+        }
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // runs the upgrade scripts
+        super.onUpgrade(db, oldVersion, newVersion);
+
+        if (oldVersion < 9) {
+            // the 8-9 script drops the search triggers, which are recreated here, and the
+            // documents are re-keyed from rowid to search_id
+            for (String sql : FoodSearchTable.CREATE_TRIGGERS) {
+                db.execSQL(sql);
+            }
+            RecipeSearchIndex.rebuild(db);
+        }
+        if (oldVersion < 6) {
+            fillPrepTimeMinutes(db);
+        }
+        if (oldVersion < 7) {
+            fillIngredientColumns(db);
+        }
+    }
+
+    /**
+     * Parses every recipe's prep time into the prep_time_minutes column added by the 5-6
+     * script. SQL cannot parse the free text, so this is done here.
+     */
+    private static void fillPrepTimeMinutes(SQLiteDatabase db) {
+        SQLiteStatement update = db.compileStatement("UPDATE " + FoodTable.TABLE + " SET "
+                + FoodTable.PREP_TIME_MINUTES_COLUMN + " = ? WHERE rowid = ?");
+        Cursor cursor = db.rawQuery("SELECT rowid, " + FoodTable.PREP_TIME_COLUMN + " FROM " + FoodTable.TABLE, null);
+        try {
+            while (cursor.moveToNext()) {
+                int minutes = PrepTimeParser.parseMinutes(cursor.getString(1));
+                if (minutes == PrepTimeParser.UNKNOWN) {
+                    continue;
+                }
+                update.bindLong(1, minutes);
+                update.bindLong(2, cursor.getLong(0));
+                update.executeUpdateDelete();
+            }
+        } finally {
+            cursor.close();
+            update.close();
+        }
+    }
+
+    /**
+     * Interns every ingredient and parses its amount into the columns added by the 6-7
+     * script.
+     */
+    private static void fillIngredientColumns(SQLiteDatabase db) {
+        IngredientDictionary dictionary = new IngredientDictionary(db);
+        SQLiteStatement update = db.compileStatement("UPDATE " + FoodIngredientTable.TABLE + " SET "
+                + FoodIngredientTable.INGREDIENT_ID_COLUMN + " = ?, " + FoodIngredientTable.QUANTITY_COLUMN + " = ?, "
+                + FoodIngredientTable.UNIT_COLUMN + " = ? WHERE " + FoodIngredientTable.ID_COLUMN + " = ?");
+        Cursor cursor = db.rawQuery("SELECT " + FoodIngredientTable.ID_COLUMN + ", " + FoodIngredientTable.AMOUNT_COLUMN
+                + ", " + FoodIngredientTable.DESCRIPTION_COLUMN + " FROM " + FoodIngredientTable.TABLE, null);
+        try {
+            while (cursor.moveToNext()) {
+                dictionary.bindParsedColumns(update, 1, cursor.getString(1), cursor.getString(2));
+                update.bindLong(4, cursor.getLong(0));
+                update.executeUpdateDelete();
+            }
+        } finally {
+            cursor.close();
+            update.close();
+            dictionary.close();
+        }
+    }
+}
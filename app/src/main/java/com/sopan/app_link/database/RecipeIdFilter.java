@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter over recipe ids. {@link #mightContain} never answers false for an id that
+ * was added, so a false answer proves a recipe does not exist without touching the database.
+ * A true answer may be wrong with a small, configurable probability; callers report those
+ * misses with {@link #recordLookup} so the observed false positive rate can be tracked.
+ *
+ * Ids cannot be removed. A deleted recipe simply stays a false positive until the filter is
+ * rebuilt, which also happens once more ids were added than it was sized for.
+ */
+public class RecipeIdFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final int capacity;
+    private final AtomicLong insertions = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final AtomicLong trueNegatives = new AtomicLong();
+
+    /**
+     * @param capacity The number of ids the filter is sized for.
+     * @param falsePositiveRate The target false positive rate at that capacity.
+     */
+    public RecipeIdFilter(int capacity, double falsePositiveRate) {
+        this.capacity = Math.max(capacity, 1);
+        long m = (long) Math.ceil(-this.capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) ((m + 63) / 64);
+        bits = new AtomicLongArray(words);
+        bitCount = (long) words * 64;
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / this.capacity * Math.log(2)));
+    }
+
+    public void add(String recipeId) {
+        long hash = hash(recipeId);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+        insertions.incrementAndGet();
+    }
+
+    public boolean mightContain(String recipeId) {
+        long hash = hash(recipeId);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                trueNegatives.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reports the outcome of a database lookup made after {@link #mightContain} returned true.
+     */
+    public void recordLookup(boolean found) {
+        if (!found) {
+            falsePositives.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns true once more ids were added than the filter was sized for.
+     */
+    public boolean isSaturated() {
+        return insertions.get() > capacity;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getInsertionCount() {
+        return insertions.get();
+    }
+
+    /**
+     * Returns the false positive rate predicted from the current number of ids.
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashCount * (double) insertions.get() / bitCount), hashCount);
+    }
+
+    /**
+     * Returns the share of lookups for absent ids that the filter let through.
+     */
+    public double getObservedFalsePositiveRate() {
+        long fp = falsePositives.get();
+        long negatives = fp + trueNegatives.get();
+        return negatives == 0 ? 0 : (double) fp / negatives;
+    }
+
+    private long index(int combinedHash) {
+        // spread negative values too
+        return (combinedHash & 0x7fffffffL) % bitCount;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units, finished with a MurmurHash3 mix.
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.Collection;
+
+/**
+ * Rebuilds the ingredients column of {@link FoodSearchTable} documents. There are no
+ * triggers on the ingredient table, because a trigger would rebuild the whole document for
+ * every ingredient row and make writing a recipe of k ingredients cost O(k^2). Writers
+ * call {@link #reindexIngredients} once per recipe instead, after its ingredients are in.
+ *
+ * Use it inside the transaction that writes the rows, and close it afterwards.
+ */
+public class RecipeSearchIndex {
+
+    private final SQLiteStatement reindex;
+
+    public RecipeSearchIndex(SQLiteDatabase db) {
+        reindex = db.compileStatement(FoodSearchTable.REINDEX_INGREDIENTS);
+    }
+
+    /**
+     * Rewrites the ingredients of the recipe's document from its current ingredient rows.
+     */
+    public void reindexIngredients(String recipeId) {
+        reindex.bindString(1, recipeId);
+        reindex.executeUpdateDelete();
+    }
+
+    public void close() {
+        reindex.close();
+    }
+
+    /**
+     * Rewrites the ingredients of every given recipe's document.
+     */
+    public static void reindexIngredients(SQLiteDatabase db, Collection<String> recipeIds) {
+        if (recipeIds.isEmpty()) {
+            return;
+        }
+        RecipeSearchIndex index = new RecipeSearchIndex(db);
+        try {
+            for (String recipeId : recipeIds) {
+                index.reindexIngredients(recipeId);
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Refills the whole index, for example after a schema upgrade changed how the documents
+     * are keyed.
+     */
+    public static void rebuild(SQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            for (String sql : FoodSearchTable.REBUILD) {
+                db.execSQL(sql);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import android.database.sqlite.SQLiteQueryBuilder;
+
+/**
+ * The fixed SQL behind the recipe provider's id-based and search URIs. Every recipe id and
+ * search term is a bound argument. The statements only build strings, so the JVM
+ * benchmarks run exactly what the app runs.
+ */
+public class RecipeStatements {
+
+    /**
+     * One recipe by id. Binds the recipe id.
+     */
+    public static String recipeById() {
+        String[] projection = {FoodTable.ID, FoodTable.TITLE,
+                FoodTable.DESCRIPTION, FoodTable.PHOTO,
+                FoodTable.PREP_TIME};
+        return SQLiteQueryBuilder.buildQueryString(false, FoodTable.TABLE, projection,
+                FoodTable.ID + " = ?", null, null, null, null);
+    }
+
+    /**
+     * The ingredients of a recipe in insertion order. Binds the recipe id.
+     */
+    public static String ingredientsByRecipe() {
+        String[] projection = {FoodIngredientTable.ID, FoodIngredientTable.AMOUNT, FoodIngredientTable.DESCRIPTION};
+        return SQLiteQueryBuilder.buildQueryString(false, FoodIngredientTable.TABLE, projection,
+                FoodIngredientTable.RECIPE_ID + " = ?", null, null, FoodIngredientTable.ID, null);
+    }
+
+    /**
+     * The steps of a recipe in order. Binds the recipe id.
+     */
+    public static String instructionsByRecipe() {
+        String[] projection = {FoodInstructionsTable.NUM, FoodInstructionsTable.DESCRIPTION, FoodInstructionsTable.PHOTO};
+        return SQLiteQueryBuilder.buildQueryString(false, FoodInstructionsTable.TABLE, projection,
+                FoodInstructionsTable.RECIPE_ID + " = ?", null, null, FoodInstructionsTable.NUM, null);
+    }
+
+    /**
+     * The recipe, its ingredients and its steps as the rows of {@link FoodRecipeFullTable}.
+     * Ingredient rows carry their stored quantity, unit and dictionary entry. Binds the
+     * recipe id three times.
+     */
+    public static String fullRecipe() {
+        return "SELECT " + FoodRecipeFullTable.ROW_TYPE_RECIPE + " AS " + FoodRecipeFullTable.ROW_TYPE_COLUMN
+                + ", 0 AS " + FoodRecipeFullTable.POSITION_COLUMN
+                + ", " + FoodTable.ID + " AS " + FoodRecipeFullTable.ID_COLUMN
+                + ", " + FoodTable.TITLE + " AS " + FoodRecipeFullTable.TITLE_COLUMN
+                + ", " + FoodTable.DESCRIPTION + " AS " + FoodRecipeFullTable.DESCRIPTION_COLUMN
+                + ", " + FoodTable.PREP_TIME + " AS " + FoodRecipeFullTable.PREP_TIME_COLUMN
+                + ", " + FoodTable.PHOTO + " AS " + FoodRecipeFullTable.PHOTO_COLUMN
+                + ", NULL AS " + FoodRecipeFullTable.AMOUNT_COLUMN
+                + ", NULL AS " + FoodRecipeFullTable.QUANTITY_COLUMN
+                + ", NULL AS " + FoodRecipeFullTable.UNIT_COLUMN
+                + ", NULL AS " + FoodRecipeFullTable.INGREDIENT_ID_COLUMN
+                + ", NULL AS " + FoodRecipeFullTable.INGREDIENT_NAME_COLUMN
+                + " FROM " + FoodTable.TABLE + " WHERE " + FoodTable.ID + " = ?"
+                + " UNION ALL SELECT " + FoodRecipeFullTable.ROW_TYPE_INGREDIENT
+                + ", " + FoodIngredientTable.ID + ", " + FoodIngredientTable.ID
+                + ", NULL, " + FoodIngredientTable.DESCRIPTION + ", NULL, NULL, " + FoodIngredientTable.AMOUNT
+                + ", " + FoodIngredientTable.QUANTITY + ", " + FoodIngredientTable.UNIT
+                + ", " + FoodIngredientTable.INGREDIENT_ID + ", " + ingredientName()
+                + " FROM " + FoodIngredientTable.TABLE + " WHERE " + FoodIngredientTable.RECIPE_ID + " = ?"
+                + " UNION ALL SELECT " + FoodRecipeFullTable.ROW_TYPE_STEP
+                + ", " + FoodInstructionsTable.NUM + ", " + FoodInstructionsTable.ID
+                + ", NULL, " + FoodInstructionsTable.DESCRIPTION + ", NULL, " + FoodInstructionsTable.PHOTO
+                + ", NULL, NULL, NULL, NULL, NULL"
+                + " FROM " + FoodInstructionsTable.TABLE + " WHERE " + FoodInstructionsTable.RECIPE_ID + " = ?"
+                + " ORDER BY " + FoodRecipeFullTable.ROW_TYPE_COLUMN + ", " + FoodRecipeFullTable.POSITION_COLUMN;
+    }
+
+    /**
+     * The recipes with any of the given number of ids, in no particular order. Binds that
+     * many recipe ids.
+     */
+    public static String recipesByIds(int count) {
+        return "SELECT " + FoodTable.ID + ", " + FoodTable.TITLE + ", " + FoodTable.DESCRIPTION
+                + ", " + FoodTable.PREP_TIME + ", " + FoodTable.PHOTO
+                + " FROM " + FoodTable.TABLE + " WHERE " + FoodTable.ID + " IN (" + placeholders(count) + ")";
+    }
+
+    /**
+     * The ingredients of any of the given number of recipes, each recipe's in insertion
+     * order. Binds that many recipe ids.
+     */
+    public static String ingredientsByRecipes(int count) {
+        return "SELECT " + FoodIngredientTable.RECIPE_ID + ", " + FoodIngredientTable.ID
+                + ", " + FoodIngredientTable.AMOUNT + ", " + FoodIngredientTable.DESCRIPTION
+                + ", " + FoodIngredientTable.QUANTITY + ", " + FoodIngredientTable.UNIT
+                + ", " + FoodIngredientTable.INGREDIENT_ID + ", " + ingredientName()
+                + " FROM " + FoodIngredientTable.TABLE
+                + " WHERE " + FoodIngredientTable.RECIPE_ID + " IN (" + placeholders(count) + ")"
+                + " ORDER BY " + FoodIngredientTable.RECIPE_ID + ", " + FoodIngredientTable.ID;
+    }
+
+    /**
+     * The steps of any of the given number of recipes, each recipe's in order. Binds that
+     * many recipe ids.
+     */
+    public static String instructionsByRecipes(int count) {
+        return "SELECT " + FoodInstructionsTable.RECIPE_ID + ", " + FoodInstructionsTable.NUM
+                + ", " + FoodInstructionsTable.DESCRIPTION + ", " + FoodInstructionsTable.PHOTO
+                + " FROM " + FoodInstructionsTable.TABLE
+                + " WHERE " + FoodInstructionsTable.RECIPE_ID + " IN (" + placeholders(count) + ")"
+                + " ORDER BY " + FoodInstructionsTable.RECIPE_ID + ", " + FoodInstructionsTable.NUM;
+    }
+
+    // the dictionary name of the ingredient row, looked up by primary key
+    private static String ingredientName() {
+        return "(SELECT " + FoodIngredientDictionaryTable.NAME + " FROM " + FoodIngredientDictionaryTable.TABLE
+                + " WHERE " + FoodIngredientDictionaryTable.ID + " = " + FoodIngredientTable.INGREDIENT_ID + ")";
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ",?");
+        }
+        return placeholders.toString();
+    }
+
+    /**
+     * The recipes that use all of the given number of ingredients, in id order. Binds that
+     * many normalized ingredient names, then the limit and the offset.
+     *
+     * Each ingredient's recipe ids come from a range of the (ingredient_id, recipe_id) index,
+     * already sorted by recipe id, so the ORDER BY lets SQLite intersect them with a merge
+     * instead of building a temporary b-tree. The page is cut inside the intersection, so the
+     * merge stops after limit + offset matches however common the ingredients are, and only
+     * the recipes of the page are read.
+     */
+    public static String recipesContaining(int count) {
+        StringBuilder matches = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                matches.append(" INTERSECT ");
+            }
+            matches.append("SELECT ").append(FoodIngredientTable.RECIPE_ID).append(" FROM ")
+                    .append(FoodIngredientTable.TABLE).append(" WHERE ").append(FoodIngredientTable.INGREDIENT_ID)
+                    .append(" = (SELECT ").append(FoodIngredientDictionaryTable.ID).append(" FROM ")
+                    .append(FoodIngredientDictionaryTable.TABLE).append(" WHERE ")
+                    .append(FoodIngredientDictionaryTable.NAME).append(" = ?)");
+        }
+        return "SELECT " + FoodTable.ID + ", " + FoodTable.TITLE + ", " + FoodTable.PREP_TIME + ", " + FoodTable.PHOTO
+                + " FROM " + FoodTable.TABLE + " WHERE " + FoodTable.ID + " IN (" + matches
+                + " ORDER BY 1 LIMIT ? OFFSET ?) ORDER BY " + FoodTable.ID;
+    }
+
+    /**
+     * Full-text matches with their matchinfo, for {@link SearchRanker} to rank and page.
+     * Binds the FTS match query.
+     */
+    public static String search() {
+        return "SELECT " + FoodTable.ID + ", " + FoodTable.TITLE + ", " + FoodTable.PREP_TIME + ", " + FoodTable.PHOTO
+                + ", matchinfo(" + FoodSearchTable.TABLE + ", '" + SearchRanker.MATCH_INFO_FORMAT + "') AS "
+                + SearchRanker.MATCH_INFO_COLUMN + " FROM " + FoodSearchTable.TABLE + " JOIN " + FoodTable.TABLE
+                + " ON " + FoodTable.SEARCH_ID + " = " + FoodSearchTable.DOCID
+                + " WHERE " + FoodSearchTable.TABLE + " MATCH ?";
+    }
+}
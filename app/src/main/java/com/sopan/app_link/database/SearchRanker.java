@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ranks the matches of {@link RecipeStatements#search} and cuts out one page of them.
+ *
+ * Each match carries matchinfo(recipes_fts, 'pcx'): the phrase and column counts, then for
+ * every phrase and column the hits in this document, the hits in all documents and the
+ * number of documents with a hit. A document scores the sum over phrases and columns of
+ * its hits divided by the hits in all documents, so rare words weigh more than common ones,
+ * times a weight per column. SQLite on Android cannot register a ranking function, so this
+ * runs over the match cursor instead. Only the best offset + limit matches are kept while
+ * the cursor is read, and ties are broken by title.
+ */
+public class SearchRanker {
+
+    /**
+     * Name of the matchinfo column in the matches cursor. It is left out of the page.
+     */
+    public static final String MATCH_INFO_COLUMN = "match_info";
+    public static final String MATCH_INFO_FORMAT = "pcx";
+
+    // title, description, ingredients, in FoodSearchTable column order
+    private static final double[] COLUMN_WEIGHTS = {3.0, 1.0, 2.0};
+
+    private static final Comparator<Match> WORST_FIRST = new Comparator<Match>() {
+        @Override
+        public int compare(Match a, Match b) {
+            if (a.score != b.score) {
+                return a.score < b.score ? -1 : 1;
+            }
+            // a later title ranks lower
+            return -compareTitles(a.title, b.title);
+        }
+    };
+
+    private static class Match {
+        final double score;
+        final String title;
+        final Object[] row;
+
+        Match(double score, String title, Object[] row) {
+            this.score = score;
+            this.title = title;
+            this.row = row;
+        }
+    }
+
+    private SearchRanker() {
+    }
+
+    /**
+     * Returns the given page of the matches, best first, with every column of the matches
+     * cursor except {@link #MATCH_INFO_COLUMN}. Reads the whole cursor but does not close it.
+     */
+    public static Cursor rank(Cursor matches, int limit, int offset) {
+        int matchInfoIndex = matches.getColumnIndexOrThrow(MATCH_INFO_COLUMN);
+        int titleIndex = matches.getColumnIndexOrThrow(FoodTable.TITLE_COLUMN);
+        String[] matchColumns = matches.getColumnNames();
+        String[] columns = new String[matchColumns.length - 1];
+        for (int i = 0, j = 0; i < matchColumns.length; i++) {
+            if (i != matchInfoIndex) {
+                columns[j++] = matchColumns[i];
+            }
+        }
+
+        int keep = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        if (limit <= 0 || keep <= 0) {
+            return new MatrixCursor(columns, 0);
+        }
+        PriorityQueue<Match> best = new PriorityQueue<Match>(Math.min(keep, 256), WORST_FIRST);
+        matches.moveToPosition(-1);
+        while (matches.moveToNext()) {
+            double score = score(matches.getBlob(matchInfoIndex));
+            String title = matches.getString(titleIndex);
+            if (best.size() == keep) {
+                Match worst = best.peek();
+                if (score < worst.score || (score == worst.score && compareTitles(title, worst.title) >= 0)) {
+                    continue;
+                }
+                best.poll();
+            }
+            Object[] row = new Object[columns.length];
+            for (int i = 0, j = 0; i < matchColumns.length; i++) {
+                if (i != matchInfoIndex) {
+                    row[j++] = matches.getString(i);
+                }
+            }
+            best.add(new Match(score, title, row));
+        }
+
+        List<Match> ranked = new ArrayList<Match>(best);
+        Collections.sort(ranked, Collections.reverseOrder(WORST_FIRST));
+        MatrixCursor page = new MatrixCursor(columns, Math.max(0, ranked.size() - offset));
+        for (int i = offset; i < ranked.size(); i++) {
+            page.addRow(ranked.get(i).row);
+        }
+        return page;
+    }
+
+    /**
+     * Scores one document from its matchinfo blob in the {@link #MATCH_INFO_FORMAT} format.
+     * The blob holds 32-bit integers in the byte order of the device.
+     */
+    static double score(byte[] matchInfo) {
+        IntBuffer ints = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phrases = ints.get(0);
+        int columns = ints.get(1);
+        double score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns; column++) {
+                int hits = 2 + 3 * (phrase * columns + column);
+                int hitsHere = ints.get(hits);
+                if (hitsHere > 0) {
+                    double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                    score += weight * hitsHere / ints.get(hits + 1);
+                }
+            }
+        }
+        return score;
+    }
+
+    // the order of ORDER BY title: nulls first
+    private static int compareTitles(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return a.compareTo(b);
+    }
+}
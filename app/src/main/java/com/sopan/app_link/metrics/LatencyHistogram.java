@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples in a ring buffer so percentiles can be
+ * reported without holding on to every sample ever recorded.
+ *
+ * Despite the name this is not a bucketed histogram: it holds the raw samples, and every
+ * percentile query copies and sorts them. Ask for all the percentiles needed at once with
+ * {@link #getPercentiles}, and keep queries off hot paths.
+ */
+public class LatencyHistogram {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+    private long count;
+
+    public LatencyHistogram(int capacity) {
+        samples = new long[capacity];
+    }
+
+    /**
+     * Records one sample, in nanoseconds.
+     */
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+        count++;
+    }
+
+    /**
+     * Returns the total number of samples recorded, including the ones that have
+     * since been overwritten.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the given percentile (0-100) of the retained samples in nanoseconds,
+     * or 0 if nothing has been recorded yet.
+     */
+    public long getPercentile(double percentile) {
+        return getPercentiles(percentile)[0];
+    }
+
+    /**
+     * Returns several percentiles (0-100) of the retained samples in nanoseconds from a
+     * single sort, or zeros if nothing has been recorded yet.
+     */
+    public long[] getPercentiles(double... percentiles) {
+        long[] result = new long[percentiles.length];
+        long[] sorted;
+        synchronized (this) {
+            if (size == 0) {
+                return result;
+            }
+            sorted = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(sorted);
+        for (int i = 0; i < percentiles.length; i++) {
+            int index = (int) Math.ceil(percentiles[i] / 100.0 * sorted.length) - 1;
+            result[i] = sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.metrics;
+
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide named counters and latency histograms.
+ *
+ * Look a metric up once and keep the returned object; recording is then a single atomic
+ * add or a synchronized ring buffer write, cheap enough to leave on in release builds.
+ */
+public class MetricsRegistry {
+
+    private static final int HISTOGRAM_CAPACITY = 512;
+
+    private static final MetricsRegistry sInstance = new MetricsRegistry();
+
+    private final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+
+    public static MetricsRegistry getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * Returns the counter with the given name, creating it on first use.
+     */
+    public AtomicLong counter(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Returns the latency histogram with the given name, creating it on first use.
+     */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram(HISTOGRAM_CAPACITY);
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the current value of every metric, sorted by name.
+     */
+    public Snapshot snapshot() {
+        Map<String, Long> counterValues = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            counterValues.put(entry.getKey(), entry.getValue().get());
+        }
+        Map<String, HistogramSnapshot> histogramValues = new TreeMap<String, HistogramSnapshot>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            histogramValues.put(entry.getKey(), new HistogramSnapshot(entry.getValue()));
+        }
+        return new Snapshot(counterValues, histogramValues);
+    }
+
+    /**
+     * Writes a snapshot in a form meant for dumpsys.
+     */
+    public void dump(PrintWriter writer) {
+        Snapshot snapshot = snapshot();
+        writer.println("Counters:");
+        for (Map.Entry<String, Long> entry : snapshot.counters.entrySet()) {
+            writer.println("  " + entry.getKey() + ": " + entry.getValue());
+        }
+        writer.println("Latencies (ms):");
+        for (Map.Entry<String, HistogramSnapshot> entry : snapshot.histograms.entrySet()) {
+            writer.println("  " + entry.getKey() + ": " + entry.getValue());
+        }
+    }
+
+    public static class Snapshot {
+        public final Map<String, Long> counters;
+        public final Map<String, HistogramSnapshot> histograms;
+
+        Snapshot(Map<String, Long> counters, Map<String, HistogramSnapshot> histograms) {
+            this.counters = Collections.unmodifiableMap(counters);
+            this.histograms = Collections.unmodifiableMap(histograms);
+        }
+    }
+
+    /**
+     * Sample count and percentiles of one histogram, in nanoseconds.
+     */
+    public static class HistogramSnapshot {
+        public final long count;
+        public final long p50;
+        public final long p90;
+        public final long p99;
+
+        HistogramSnapshot(LatencyHistogram histogram) {
+            long[] percentiles = histogram.getPercentiles(50, 90, 99);
+            count = histogram.getCount();
+            p50 = percentiles[0];
+            p90 = percentiles[1];
+            p99 = percentiles[2];
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + " p50=" + toMillis(p50) + " p90=" + toMillis(p90) + " p99=" + toMillis(p99);
+        }
+
+        private static String toMillis(long nanos) {
+            return String.format("%.2f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+}
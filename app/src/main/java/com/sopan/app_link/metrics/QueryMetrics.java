@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics kept for one kind of query: how often it ran, how long it took until its
+ * rows were first read, how many rows it returned and how many cursor windows were filled.
+ */
+public class QueryMetrics {
+
+    // also used as the trace section name
+    public final String name;
+    public final AtomicLong queries;
+    public final AtomicLong rows;
+    public final AtomicLong windowFills;
+    public final LatencyHistogram latency;
+
+    public QueryMetrics(MetricsRegistry registry, String name) {
+        this.name = name;
+        queries = registry.counter(name + ".count");
+        rows = registry.counter(name + ".rows");
+        windowFills = registry.counter(name + ".window_fills");
+        latency = registry.histogram(name + ".latency");
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a long ingredient list inflates only the rows on screen, that scrolling
+ * through it rebinds recycled rows instead of inflating new ones, and that ingredients
+ * without a row id are keyed by their content.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class IngredientListAdapterTest {
+
+    private static final int INGREDIENTS = 500;
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+
+    @Test
+    public void inflatesOnlyVisibleRows() {
+        Context context = RuntimeEnvironment.getApplication();
+        CountingAdapter adapter = new CountingAdapter();
+        RecyclerView list = new RecyclerView(context);
+        list.setLayoutManager(new LinearLayoutManager(context));
+        list.setAdapter(adapter);
+        adapter.submitList(ingredients(INGREDIENTS));
+        layout(list);
+
+        int visible = list.getChildCount();
+        assertTrue("visible " + visible, visible > 0 && visible < INGREDIENTS);
+        assertEquals(visible, adapter.created);
+
+        for (int i = 0; i < 50; i++) {
+            list.scrollBy(0, HEIGHT / 2);
+            layout(list);
+        }
+        assertTrue("bound " + adapter.bound, adapter.bound > 4 * visible);
+        // the rows on screen plus the few held in the view cache and the recycled pool
+        assertTrue("created " + adapter.created + " for " + visible + " visible", adapter.created <= 2 * visible + 2);
+    }
+
+    @Test
+    public void ingredientsWithoutIdAreKeyedByContent() {
+        Recipe.Ingredient water = ingredient("1 cup", "water");
+        Recipe.Ingredient sameWater = ingredient("1 cup", "water");
+        Recipe.Ingredient salt = ingredient("1 tsp", "salt");
+        Recipe.Ingredient blank = ingredient(null, null);
+
+        assertEquals(IngredientListAdapter.getItemKey(water), IngredientListAdapter.getItemKey(sameWater));
+        assertNotEquals(IngredientListAdapter.getItemKey(water), IngredientListAdapter.getItemKey(salt));
+        assertTrue(IngredientListAdapter.getItemKey(water) < 0);
+        assertNotEquals(RecyclerView.NO_ID, IngredientListAdapter.getItemKey(blank));
+
+        Recipe.Ingredient stored = ingredient("1 cup", "water");
+        stored.setId(7);
+        assertEquals(7, IngredientListAdapter.getItemKey(stored));
+    }
+
+    private static Recipe.Ingredient ingredient(String amount, String description) {
+        Recipe.Ingredient ingredient = new Recipe.Ingredient();
+        ingredient.setAmount(amount);
+        ingredient.setDescription(description);
+        return ingredient;
+    }
+
+    private static void layout(View view) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private static List<Recipe.Ingredient> ingredients(int count) {
+        List<Recipe.Ingredient> ingredients = new ArrayList<Recipe.Ingredient>(count);
+        for (int i = 0; i < count; i++) {
+            Recipe.Ingredient ingredient = new Recipe.Ingredient();
+            ingredient.setId(i);
+            ingredient.setAmount(i + " g");
+            ingredient.setDescription("ingredient " + i);
+            ingredients.add(ingredient);
+        }
+        return ingredients;
+    }
+
+    private static class CountingAdapter extends IngredientListAdapter {
+        int created;
+        int bound;
+
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            created++;
+            return super.onCreateViewHolder(parent, viewType);
+        }
+
+        @Override
+        public void onBindViewHolder(ViewHolder holder, int position) {
+            bound++;
+            super.onBindViewHolder(holder, position);
+        }
+    }
+}
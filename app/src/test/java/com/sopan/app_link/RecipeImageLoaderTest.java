@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that a photo downloaded once is served from the disk cache the second time, without
+ * reaching the server or the loader's network counters.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RecipeImageLoaderTest {
+
+    private static final String PHOTO = "not really a jpeg";
+
+    private MockWebServer server;
+    private File cacheDirectory;
+
+    @Before
+    public void startServer() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        cacheDirectory = File.createTempFile("recipe-images", "");
+        cacheDirectory.delete();
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        server.shutdown();
+        File[] files = cacheDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDirectory.delete();
+    }
+
+    @Test
+    public void secondDownloadIsDiskCacheHit() throws IOException {
+        server.enqueue(new MockResponse()
+                .setHeader("Cache-Control", "max-age=3600")
+                .setBody(PHOTO));
+        RecipeImageLoader loader = new RecipeImageLoader(RuntimeEnvironment.getApplication(),
+                RecipeImageLoader.newClientBuilder(cacheDirectory, 1024 * 1024), 1024 * 1024, null);
+        Request request = new Request.Builder().url(server.url("/photos/salad.jpg")).build();
+
+        Response first = loader.getHttpClient().newCall(request).execute();
+        assertEquals(PHOTO, first.body().string());
+        assertNotNull(first.networkResponse());
+
+        Response second = loader.getHttpClient().newCall(request).execute();
+        assertEquals(PHOTO, second.body().string());
+        assertNotNull(second.cacheResponse());
+        assertNull(second.networkResponse());
+
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, loader.getNetworkRequestCount());
+        assertEquals(PHOTO.length(), loader.getNetworkBytes());
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link;
+
+import android.database.MatrixCursor;
+
+import com.sopan.app_link.database.FoodRecipeFullTable;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the cursor mappers read every column from the position resolved once per
+ * cursor, whatever order the projection puts the columns in.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RecipeMapperTest {
+
+    @Test
+    public void recipeMapperFollowsProjectionOrder() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"prep_time", "photo", "_id", "description", "title"});
+        cursor.addRow(new Object[]{"20 min", "photo.jpg", "recipe-1", "Good", "Salad"});
+        cursor.addRow(new Object[]{"1 hr", "other.jpg", "recipe-2", "Better", "Soup"});
+
+        Recipe.Mapper mapper = new Recipe.Mapper(cursor);
+        cursor.moveToFirst();
+        Recipe first = mapper.map(cursor);
+        cursor.moveToNext();
+        Recipe second = mapper.map(cursor);
+
+        assertEquals("recipe-1", first.getId());
+        assertEquals("Salad", first.getTitle());
+        assertEquals("Good", first.getDescription());
+        assertEquals("photo.jpg", first.getPhoto());
+        assertEquals("20 min", first.getPrepTime());
+        assertEquals("recipe-2", second.getId());
+        assertEquals("Soup", second.getTitle());
+        assertEquals("1 hr", second.getPrepTime());
+    }
+
+    @Test
+    public void recipeMapperLeavesMissingColumnsUnset() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"_id", "title"});
+        cursor.addRow(new Object[]{"recipe-1", "Salad"});
+        cursor.moveToFirst();
+
+        Recipe recipe = Recipe.fromCursor(cursor);
+
+        assertEquals("recipe-1", recipe.getId());
+        assertEquals("Salad", recipe.getTitle());
+        assertNull(recipe.getDescription());
+        assertNull(recipe.getPhoto());
+        assertNull(recipe.getPrepTime());
+    }
+
+    @Test
+    public void ingredientListMapsEveryRowFromTheFirst() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"description", "amount", "_id"});
+        cursor.addRow(new Object[]{"Salt", "pinch", 7L});
+        cursor.addRow(new Object[]{"Olive oil", "2 T", 8L});
+        cursor.addRow(new Object[]{"Lemon", "1", 9L});
+        // listFromCursor starts from the first row wherever the cursor is
+        cursor.moveToLast();
+
+        List<Recipe.Ingredient> ingredients = Recipe.Ingredient.listFromCursor(cursor);
+
+        assertEquals(3, ingredients.size());
+        assertEquals(7L, ingredients.get(0).getId());
+        assertEquals("pinch", ingredients.get(0).getAmount());
+        assertEquals("Salt", ingredients.get(0).getDescription());
+        assertEquals("Lemon", ingredients.get(2).getDescription());
+    }
+
+    @Test
+    public void ingredientWithoutIdColumnHasNoId() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"amount", "description"});
+        cursor.addRow(new Object[]{"1 cup", "Rice"});
+        cursor.moveToFirst();
+
+        Recipe.Ingredient ingredient = Recipe.Ingredient.fromCursor(cursor);
+
+        assertEquals(Recipe.Ingredient.NO_ID, ingredient.getId());
+        assertEquals("Rice", ingredient.getDescription());
+    }
+
+    @Test
+    public void stepListFollowsProjectionOrder() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{"photo", "description"});
+        cursor.addRow(new Object[]{null, "Chop"});
+        cursor.addRow(new Object[]{"step.jpg", "Fry"});
+
+        List<Recipe.Step> steps = Recipe.Step.listFromCursor(cursor);
+
+        assertEquals(2, steps.size());
+        assertEquals("Chop", steps.get(0).getDescription());
+        assertNull(steps.get(0).getPhoto());
+        assertEquals("Fry", steps.get(1).getDescription());
+        assertEquals("step.jpg", steps.get(1).getPhoto());
+    }
+
+    @Test
+    public void fullCursorMapsHeaderIngredientsAndSteps() {
+        MatrixCursor cursor = fullCursor();
+        addHeader(cursor, "recipe-1", "Salad");
+        addIngredient(cursor, 7L, "1 cup", "Rice");
+        addStep(cursor, "Boil", "step.jpg");
+
+        Recipe recipe = Recipe.fromFullCursor(cursor);
+
+        assertEquals("recipe-1", recipe.getId());
+        assertEquals("Salad", recipe.getTitle());
+        assertEquals(1, recipe.getIngredients().size());
+        assertEquals(7L, recipe.getIngredients().get(0).getId());
+        assertEquals("1 cup", recipe.getIngredients().get(0).getAmount());
+        assertEquals("Rice", recipe.getIngredients().get(0).getDescription());
+        assertEquals(1, recipe.getInstructions().size());
+        assertEquals("Boil", recipe.getInstructions().get(0).getDescription());
+        assertEquals("step.jpg", recipe.getInstructions().get(0).getPhoto());
+    }
+
+    @Test
+    public void fullCursorWithoutHeaderHasNoRecipe() {
+        MatrixCursor cursor = fullCursor();
+        addIngredient(cursor, 7L, "1 cup", "Rice");
+
+        assertNull(Recipe.fromFullCursor(cursor));
+    }
+
+    @Test
+    public void batchCursorStartsRecipeAtEveryHeader() {
+        MatrixCursor cursor = fullCursor();
+        addHeader(cursor, "recipe-1", "Salad");
+        addIngredient(cursor, 7L, "1 cup", "Rice");
+        addHeader(cursor, "recipe-2", "Soup");
+        addStep(cursor, "Simmer", null);
+
+        List<Recipe> recipes = Recipe.listFromFullCursor(cursor);
+
+        assertEquals(2, recipes.size());
+        assertEquals(1, recipes.get(0).getIngredients().size());
+        assertEquals(0, recipes.get(0).getInstructions().size());
+        assertEquals("Soup", recipes.get(1).getTitle());
+        assertEquals(0, recipes.get(1).getIngredients().size());
+        assertEquals("Simmer", recipes.get(1).getInstructions().get(0).getDescription());
+    }
+
+    @Test
+    public void fullCursorIngredientsReturnStoredColumns() {
+        MatrixCursor cursor = new MatrixCursor(new String[]{FoodRecipeFullTable.ROW_TYPE_COLUMN,
+                FoodRecipeFullTable.POSITION_COLUMN, FoodRecipeFullTable.ID_COLUMN, FoodRecipeFullTable.TITLE_COLUMN,
+                FoodRecipeFullTable.DESCRIPTION_COLUMN, FoodRecipeFullTable.PREP_TIME_COLUMN,
+                FoodRecipeFullTable.PHOTO_COLUMN, FoodRecipeFullTable.AMOUNT_COLUMN,
+                FoodRecipeFullTable.QUANTITY_COLUMN, FoodRecipeFullTable.UNIT_COLUMN,
+                FoodRecipeFullTable.INGREDIENT_ID_COLUMN, FoodRecipeFullTable.INGREDIENT_NAME_COLUMN});
+        cursor.addRow(new Object[]{FoodRecipeFullTable.ROW_TYPE_RECIPE, 0, "recipe-1", "Salad", "Good", "20 min",
+                "photo.jpg", null, null, null, null, null});
+        // stored values that differ from what parsing the amount would give
+        cursor.addRow(new Object[]{FoodRecipeFullTable.ROW_TYPE_INGREDIENT, 7L, 7L, null, "Baby potatos", null, null,
+                "1 1/2 lbs", 2.0, "kg", 42L, "potato"});
+        cursor.addRow(new Object[]{FoodRecipeFullTable.ROW_TYPE_INGREDIENT, 8L, 8L, null, null, null, null,
+                "some", null, null, null, null});
+
+        Recipe recipe = Recipe.fromFullCursor(cursor);
+
+        Recipe.Ingredient stored = recipe.getIngredients().get(0);
+        assertEquals(2.0, stored.getQuantity(), 0);
+        assertEquals("kg", stored.getUnit());
+        assertEquals(42L, stored.getIngredientId());
+        assertEquals("potato", stored.getName());
+        Recipe.Ingredient empty = recipe.getIngredients().get(1);
+        assertTrue(Double.isNaN(empty.getQuantity()));
+        assertNull(empty.getUnit());
+        assertEquals(Recipe.Ingredient.NO_ID, empty.getIngredientId());
+        assertNull(empty.getName());
+    }
+
+    @Test
+    public void ingredientsWithoutStoredColumnsParseTheAmount() {
+        MatrixCursor cursor = fullCursor();
+        addHeader(cursor, "recipe-1", "Salad");
+        addIngredient(cursor, 7L, "1 1/2 lbs", "Baby potatos");
+
+        Recipe.Ingredient ingredient = Recipe.fromFullCursor(cursor).getIngredients().get(0);
+
+        assertEquals(1.5, ingredient.getQuantity(), 0);
+        assertEquals("lbs", ingredient.getUnit());
+        assertEquals(Recipe.Ingredient.NO_ID, ingredient.getIngredientId());
+    }
+
+    private static MatrixCursor fullCursor() {
+        return new MatrixCursor(new String[]{FoodRecipeFullTable.ROW_TYPE_COLUMN, FoodRecipeFullTable.POSITION_COLUMN,
+                FoodRecipeFullTable.ID_COLUMN, FoodRecipeFullTable.TITLE_COLUMN, FoodRecipeFullTable.DESCRIPTION_COLUMN,
+                FoodRecipeFullTable.PREP_TIME_COLUMN, FoodRecipeFullTable.PHOTO_COLUMN, FoodRecipeFullTable.AMOUNT_COLUMN});
+    }
+
+    private static void addHeader(MatrixCursor cursor, String id, String title) {
+        cursor.addRow(new Object[]{FoodRecipeFullTable.ROW_TYPE_RECIPE, 0, id, title, "Good", "20 min", "photo.jpg",
+                null});
+    }
+
+    private static void addIngredient(MatrixCursor cursor, long id, String amount, String description) {
+        cursor.addRow(new Object[]{FoodRecipeFullTable.ROW_TYPE_INGREDIENT, id, id, null, description, null, null,
+                amount});
+    }
+
+    private static void addStep(MatrixCursor cursor, String description, String photo) {
+        cursor.addRow(new Object[]{FoodRecipeFullTable.ROW_TYPE_STEP, 1, 1, null, description, null, photo, null});
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.content_provider;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.net.Uri;
+
+import com.sopan.app_link.database.FoodIngredientTable;
+import com.sopan.app_link.database.FoodTable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowContentResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks the change notifications of the provider's batch writes: a committed batch sends one
+ * notification per batch, for the recipe if it touched one and for the catalog otherwise,
+ * and a batch that is rolled back sends none.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NotificationBatchTest {
+
+    private static final String RECIPE_ID = "grilled-potato-salad";
+
+    private FoodContentProvider provider;
+    private ShadowContentResolver resolver;
+
+    @Before
+    public void setUpProvider() {
+        provider = Robolectric.setupContentProvider(FoodContentProvider.class,
+                FoodContentProvider.CONTENT_URI.getAuthority());
+        resolver = shadowOf(provider.getContext().getContentResolver());
+    }
+
+    @Test
+    public void bulkInsertForOneRecipeNotifiesTheRecipeOnce() {
+        Uri ingredients = ingredientsUri(RECIPE_ID);
+        provider.bulkInsert(ingredients, new ContentValues[]{
+                ingredient("1 cup", "water"), ingredient("2", "potatoes"), ingredient("1 tsp", "salt")});
+
+        assertEquals(1, resolver.getNotifiedUris().size());
+        assertEquals(recipeUri(RECIPE_ID), resolver.getNotifiedUris().get(0).uri);
+    }
+
+    @Test
+    public void bulkInsertForSeveralRecipesNotifiesTheCatalogOnce() {
+        provider.bulkInsert(FoodContentProvider.CONTENT_URI, new ContentValues[]{
+                recipe("batch-soup"), recipe("batch-bread")});
+
+        assertEquals(1, resolver.getNotifiedUris().size());
+        assertEquals(FoodContentProvider.CONTENT_URI, resolver.getNotifiedUris().get(0).uri);
+    }
+
+    @Test
+    public void rolledBackBulkInsertSendsNoNotification() {
+        try {
+            // the second row collides with a bundled recipe, which rolls back the first one too
+            provider.bulkInsert(FoodContentProvider.CONTENT_URI, new ContentValues[]{
+                    recipe("batch-soup"), recipe(RECIPE_ID)});
+            fail("Duplicate recipe was inserted");
+        } catch (SQLException e) {
+            // expected
+        }
+
+        assertTrue(resolver.getNotifiedUris().isEmpty());
+        assertEquals(0, recipeCount("batch-soup"));
+    }
+
+    @Test
+    public void applyBatchSendsOneNotificationPerRecipe() throws OperationApplicationException {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<ContentProviderOperation>();
+        operations.add(ContentProviderOperation.newInsert(ingredientsUri(RECIPE_ID))
+                .withValues(ingredient("1 cup", "water")).build());
+        operations.add(ContentProviderOperation.newInsert(ingredientsUri(RECIPE_ID))
+                .withValues(ingredient("2", "potatoes")).build());
+        provider.applyBatch(operations);
+
+        List<ShadowContentResolver.NotifiedUri> notified = resolver.getNotifiedUris();
+        assertEquals(1, notified.size());
+        assertEquals(recipeUri(RECIPE_ID), notified.get(0).uri);
+    }
+
+    @Test
+    public void rolledBackApplyBatchSendsNoNotification() throws OperationApplicationException {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<ContentProviderOperation>();
+        operations.add(ContentProviderOperation.newInsert(ingredientsUri(RECIPE_ID))
+                .withValues(ingredient("1 cup", "water")).build());
+        operations.add(ContentProviderOperation.newInsert(FoodContentProvider.CONTENT_URI)
+                .withValues(recipe(RECIPE_ID)).build());
+        try {
+            provider.applyBatch(operations);
+            fail("Duplicate recipe was inserted");
+        } catch (SQLException e) {
+            // expected
+        }
+
+        assertTrue(resolver.getNotifiedUris().isEmpty());
+    }
+
+    private long recipeCount(String recipeId) {
+        Cursor cursor = provider.query(recipeUri(recipeId), null, null, null, null);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static Uri recipeUri(String recipeId) {
+        return FoodContentProvider.CONTENT_URI.buildUpon().appendPath(recipeId).build();
+    }
+
+    private static Uri ingredientsUri(String recipeId) {
+        return FoodContentProvider.CONTENT_URI.buildUpon().appendPath("ingredients").appendPath(recipeId).build();
+    }
+
+    private static ContentValues recipe(String recipeId) {
+        ContentValues values = new ContentValues();
+        values.put(FoodTable.ID_COLUMN, recipeId);
+        values.put(FoodTable.TITLE_COLUMN, "Batch " + recipeId);
+        return values;
+    }
+
+    private static ContentValues ingredient(String amount, String description) {
+        ContentValues values = new ContentValues();
+        values.put(FoodIngredientTable.AMOUNT_COLUMN, amount);
+        values.put(FoodIngredientTable.DESCRIPTION_COLUMN, description);
+        return values;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Imports small NDJSON catalogs into a copy of the bundled database: unchanged recipes are
+ * skipped by their content hash, changed ones are rewritten, and a failure partway through
+ * keeps the batches committed before it.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CatalogImporterTest {
+
+    private static final String SOUP = "{\"_id\": \"import-soup\", \"title\": \"Soup\","
+            + " \"ingredients\": [{\"amount\": \"1 cup\", \"description\": \"water\"}],"
+            + " \"instructions\": [{\"num\": \"1\", \"description\": \"Boil\"}]}\n";
+    private static final String SPICY_SOUP = "{\"_id\": \"import-soup\", \"title\": \"Spicy soup\","
+            + " \"ingredients\": [{\"amount\": \"1 cup\", \"description\": \"water\"},"
+            + " {\"amount\": \"1\", \"description\": \"chili\"}],"
+            + " \"instructions\": [{\"num\": \"1\", \"description\": \"Boil\"}]}\n";
+    private static final String BREAD = "{\"_id\": \"import-bread\", \"title\": \"Bread\","
+            + " \"ingredients\": [], \"instructions\": []}\n";
+
+    private File catalog;
+    private SQLiteDatabase db;
+
+    @Before
+    public void copyCatalog() throws IOException {
+        catalog = File.createTempFile("recipes-import-test", ".db");
+        Files.copy(new File("src/main/assets/databases/recipes.db").toPath(), catalog.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        db = SQLiteDatabase.openDatabase(catalog.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+    }
+
+    @After
+    public void deleteCatalog() {
+        db.close();
+        catalog.delete();
+    }
+
+    @Test
+    public void unchangedRecipeIsSkipped() throws IOException {
+        CatalogImporter.Result first = new CatalogImporter(db).importCatalog(stream(SOUP));
+        CatalogImporter.Result second = new CatalogImporter(db).importCatalog(stream(SOUP));
+
+        assertEquals(1, first.recipesInserted);
+        assertTrue(first.committed);
+        assertEquals(1, second.recipesSkipped);
+        assertEquals(0, second.rowsWritten);
+        assertFalse(second.hasChanges());
+        assertFalse(second.committed);
+        assertEquals(1, ingredientCount("import-soup"));
+    }
+
+    @Test
+    public void changedRecipeIsRewritten() throws IOException {
+        new CatalogImporter(db).importCatalog(stream(SOUP));
+        CatalogImporter.Result result = new CatalogImporter(db).importCatalog(stream(SPICY_SOUP));
+
+        assertEquals(1, result.recipesUpdated);
+        assertEquals(0, result.recipesInserted);
+        assertTrue(result.committed);
+        assertEquals("Spicy soup", DatabaseUtils.stringForQuery(db,
+                "SELECT title FROM recipes WHERE _id = 'import-soup'", null));
+        // the old ingredients are replaced, not appended to
+        assertEquals(2, ingredientCount("import-soup"));
+        assertEquals(1, DatabaseUtils.longForQuery(db,
+                "SELECT count(*) FROM recipes_fts WHERE recipes_fts MATCH 'chili'", null));
+    }
+
+    @Test
+    public void failurePartwayKeepsCommittedBatches() {
+        CatalogImporter.Result result = new CatalogImporter.Result();
+        try {
+            new CatalogImporter(db, 1).importCatalog(stream(SOUP + BREAD + "{\"_id\": "), result);
+            fail("Truncated catalog was imported");
+        } catch (IOException e) {
+            // expected
+        }
+
+        assertTrue(result.committed);
+        assertEquals(2, result.recipesInserted);
+        assertEquals(1, recipeCount("import-soup"));
+        assertEquals(1, recipeCount("import-bread"));
+    }
+
+    @Test
+    public void failureInFirstBatchCommitsNothing() {
+        CatalogImporter.Result result = new CatalogImporter.Result();
+        try {
+            new CatalogImporter(db).importCatalog(stream(SOUP + BREAD + "{\"_id\": "), result);
+            fail("Truncated catalog was imported");
+        } catch (IOException e) {
+            // expected
+        }
+
+        assertFalse(result.committed);
+        assertEquals(0, recipeCount("import-soup"));
+        assertEquals(0, recipeCount("import-bread"));
+    }
+
+    private long recipeCount(String recipeId) {
+        return DatabaseUtils.longForQuery(db, "SELECT count(*) FROM recipes WHERE _id = ?", new String[]{recipeId});
+    }
+
+    private long ingredientCount(String recipeId) {
+        return DatabaseUtils.longForQuery(db, "SELECT count(*) FROM recipe_ingredients WHERE recipe_id = ?",
+                new String[]{recipeId});
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(Charset.forName("UTF-8")));
+    }
+}
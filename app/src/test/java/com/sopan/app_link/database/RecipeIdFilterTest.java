@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the recipe id filter at a million ids: no added id is ever ruled out, and absent
+ * ids get through at about the false positive rate the filter was sized for.
+ */
+public class RecipeIdFilterTest {
+
+    private static final int IDS = 1000000;
+    private static final double TARGET_RATE = 0.01;
+    // the observed rate over a million probes stays well within this of the target
+    private static final double TOLERANCE = 1.5;
+
+    @Test
+    public void falsePositiveRateWithinTarget() {
+        RecipeIdFilter filter = new RecipeIdFilter(IDS, TARGET_RATE);
+        for (int i = 0; i < IDS; i++) {
+            filter.add(presentId(i));
+        }
+        assertFalse(filter.isSaturated());
+
+        for (int i = 0; i < IDS; i++) {
+            assertTrue(presentId(i), filter.mightContain(presentId(i)));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < IDS; i++) {
+            if (filter.mightContain(absentId(i))) {
+                filter.recordLookup(false);
+                falsePositives++;
+            }
+        }
+        double observed = (double) falsePositives / IDS;
+        assertTrue("observed " + observed, observed <= TARGET_RATE * TOLERANCE);
+        assertTrue("expected " + filter.getExpectedFalsePositiveRate(),
+                filter.getExpectedFalsePositiveRate() <= TARGET_RATE * TOLERANCE);
+        assertEquals(observed, filter.getObservedFalsePositiveRate(), 1e-9);
+    }
+
+    @Test
+    public void saturatesPastCapacity() {
+        RecipeIdFilter filter = new RecipeIdFilter(10, TARGET_RATE);
+        for (int i = 0; i < 10; i++) {
+            filter.add(presentId(i));
+        }
+        assertFalse(filter.isSaturated());
+        filter.add(presentId(10));
+        assertTrue(filter.isSaturated());
+    }
+
+    // slugs like the catalog's, so the hash sees realistic input
+    private static String presentId(int i) {
+        return "recipe-" + i;
+    }
+
+    private static String absentId(int i) {
+        return "missing-recipe-" + i;
+    }
+}
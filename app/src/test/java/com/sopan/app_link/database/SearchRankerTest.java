@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.database;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the matchinfo score and the page SearchRanker cuts from a cursor of matches.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SearchRankerTest {
+
+    private static final String[] COLUMNS = {FoodTable.ID_COLUMN, FoodTable.TITLE_COLUMN,
+            SearchRanker.MATCH_INFO_COLUMN};
+
+    @Test
+    public void titleHitOutweighsDescriptionHit() {
+        // one phrase: hits here, hits everywhere and documents with hits, per column
+        byte[] inTitle = matchInfo(1, 3, 1, 4, 4, 0, 10, 5, 0, 6, 3);
+        byte[] inDescription = matchInfo(1, 3, 0, 4, 4, 1, 10, 5, 0, 6, 3);
+        assertTrue(SearchRanker.score(inTitle) > SearchRanker.score(inDescription));
+    }
+
+    @Test
+    public void rareWordOutweighsCommonWord() {
+        byte[] rare = matchInfo(1, 3, 1, 2, 2, 0, 0, 0, 0, 0, 0);
+        byte[] common = matchInfo(1, 3, 1, 50, 40, 0, 0, 0, 0, 0, 0);
+        assertTrue(SearchRanker.score(rare) > SearchRanker.score(common));
+    }
+
+    @Test
+    public void pageIsBestFirstWithTiesByTitle() {
+        MatrixCursor matches = new MatrixCursor(COLUMNS);
+        matches.addRow(new Object[]{"c", "Carrot soup", matchInfo(1, 3, 0, 4, 4, 1, 10, 5, 0, 6, 3)});
+        matches.addRow(new Object[]{"a", "Apple pie", matchInfo(1, 3, 1, 4, 4, 0, 10, 5, 0, 6, 3)});
+        matches.addRow(new Object[]{"b", "Banana bread", matchInfo(1, 3, 0, 4, 4, 1, 10, 5, 0, 6, 3)});
+        matches.addRow(new Object[]{"d", "Date cake", matchInfo(1, 3, 0, 4, 4, 0, 10, 5, 1, 6, 3)});
+
+        Cursor page = SearchRanker.rank(matches, 2, 1);
+        assertArrayEquals(new String[]{FoodTable.ID_COLUMN, FoodTable.TITLE_COLUMN}, page.getColumnNames());
+        assertEquals(2, page.getCount());
+        page.moveToFirst();
+        assertEquals("d", page.getString(0));
+        page.moveToNext();
+        assertEquals("b", page.getString(0));
+
+        Cursor first = SearchRanker.rank(matches, 1, 0);
+        first.moveToFirst();
+        assertEquals("a", first.getString(0));
+        assertEquals(0, SearchRanker.rank(matches, 5, 4).getCount());
+    }
+
+    private static byte[] matchInfo(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * values.length).order(ByteOrder.nativeOrder());
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+}
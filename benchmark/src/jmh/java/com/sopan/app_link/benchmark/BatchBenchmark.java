@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.benchmark;
+
+import com.sopan.app_link.Recipe;
+import com.sopan.app_link.database.RecipeBatchBuilder;
+import com.sopan.app_link.database.RecipeStatements;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetching a batch of whole recipes through the provider's recipe/batch path, IN-list
+ * chunks assembled by {@link RecipeBatchBuilder}, against one full-recipe query per recipe.
+ * Both map the rows to {@link Recipe}s, and each batch takes the next ids of the same walk
+ * over the catalog as {@link QueryBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BatchBenchmark {
+
+    @Param({"10000", "100000"})
+    public int recipes;
+
+    @Param({"50"})
+    public int batchSize;
+
+    private Connection connection;
+    private PreparedStatement fullRecipe;
+    private PreparedStatement recipesByIds;
+    private PreparedStatement ingredientsByRecipes;
+    private PreparedStatement instructionsByRecipes;
+    private String[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        connection = CatalogFixture.open(recipes);
+        List<String> recipeIds = CatalogFixture.recipeIds(connection);
+        ids = recipeIds.toArray(new String[0]);
+        fullRecipe = connection.prepareStatement(RecipeStatements.fullRecipe());
+        recipesByIds = connection.prepareStatement(RecipeStatements.recipesByIds(RecipeBatchBuilder.CHUNK_SIZE));
+        ingredientsByRecipes = connection.prepareStatement(
+                RecipeStatements.ingredientsByRecipes(RecipeBatchBuilder.CHUNK_SIZE));
+        instructionsByRecipes = connection.prepareStatement(
+                RecipeStatements.instructionsByRecipes(RecipeBatchBuilder.CHUNK_SIZE));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    private List<String> nextBatch() {
+        List<String> batch = new ArrayList<String>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            next = (next + 7919) % ids.length;
+            batch.add(ids[next]);
+        }
+        return batch;
+    }
+
+    @Benchmark
+    public List<Recipe> batch() throws SQLException {
+        RecipeBatchBuilder batch = new RecipeBatchBuilder(nextBatch());
+        for (int chunk = 0; chunk < batch.getChunkCount(); chunk++) {
+            String[] args = batch.getChunkArgs(chunk);
+            batch.addRecipes(JdbcCursor.query(recipesByIds, args));
+            batch.addIngredients(JdbcCursor.query(ingredientsByRecipes, args));
+            batch.addSteps(JdbcCursor.query(instructionsByRecipes, args));
+        }
+        return Recipe.listFromFullCursor(batch.build());
+    }
+
+    @Benchmark
+    public List<Recipe> singleQueries() throws SQLException {
+        List<Recipe> result = new ArrayList<Recipe>(batchSize);
+        for (String id : nextBatch()) {
+            result.add(Recipe.fromFullCursor(JdbcCursor.query(fullRecipe, id, id, id)));
+        }
+        return result;
+    }
+}
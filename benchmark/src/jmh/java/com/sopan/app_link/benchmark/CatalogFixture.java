@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.benchmark;
+
+import com.sopan.app_link.tools.CatalogGenerator;
+import com.sopan.app_link.tools.FlatCatalogExporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generated recipe catalogs for the benchmarks, written by the tools module's
+ * {@link CatalogGenerator} from a fixed seed.
+ *
+ * Catalogs are cached in the temp directory and reused by later runs, until the bundled
+ * recipes.db they are generated from moves to a new schema version.
+ */
+public final class CatalogFixture {
+
+    public static final long SEED = CatalogGenerator.DEFAULT_SEED;
+
+    private CatalogFixture() {
+    }
+
+    public static Connection open(int recipes) throws IOException, SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + get(recipes).getPath());
+    }
+
+    /**
+     * Returns the catalog with the given number of recipes, generating it on first use.
+     */
+    public static synchronized File get(int recipes) throws IOException, SQLException {
+        File file = new File(System.getProperty("java.io.tmpdir"),
+                "recipes-catalog-" + recipes + "-" + SEED + ".db");
+        File template = new File(System.getProperty("benchmark.recipesDb",
+                "../app/src/main/assets/databases/recipes.db"));
+        if (!file.exists() || userVersion(file) != userVersion(template)) {
+            CatalogGenerator.generate(template, file, recipes, SEED);
+        }
+        return file;
+    }
+
+    /**
+     * Returns the catalog with the given number of recipes exported as a flat file,
+     * exporting it on first use.
+     */
+    public static synchronized File getFlat(int recipes) throws IOException, SQLException {
+        File database = get(recipes);
+        File file = new File(database.getPath().replaceFirst("\\.db$", ".flat"));
+        if (!file.exists() || file.lastModified() < database.lastModified()) {
+            FlatCatalogExporter.export(database, file);
+        }
+        return file;
+    }
+
+    private static int userVersion(File database) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database.getPath());
+        try {
+            ResultSet rows = connection.createStatement().executeQuery("PRAGMA user_version");
+            return rows.next() ? rows.getInt(1) : 0;
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Returns the ids of all recipes in the catalog, in id order.
+     */
+    public static List<String> recipeIds(Connection connection) throws SQLException {
+        List<String> ids = new ArrayList<String>();
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet rows = statement.executeQuery("SELECT _id FROM recipes ORDER BY _id");
+            while (rows.next()) {
+                ids.add(rows.getString(1));
+            }
+        } finally {
+            statement.close();
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.benchmark;
+
+import com.sopan.app_link.Recipe;
+import com.sopan.app_link.database.RecipeStatements;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent readers against one writer, in the rollback journal mode and in write-ahead
+ * logging mode. Every reader thread has its own connection, like the reader connections
+ * SQLiteDatabase pools in write-ahead logging mode, and loads whole recipes; the writer keeps
+ * rewriting recipes and their ingredients in small transactions, the way a catalog sync would,
+ * with the search trigger firing on the description update.
+ *
+ * Throughput mode gives reads and writes per second, sample mode their latency
+ * percentiles. The default group is four readers and one writer; run with
+ * -tg readers,1 for other reader counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConcurrencyBenchmark {
+
+    // as on Android
+    private static final int BUSY_TIMEOUT_MS = 2500;
+
+    @Param({"delete", "wal"})
+    public String journalMode;
+
+    @Param({"10000"})
+    public int recipes;
+
+    private File database;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // the writer changes the catalog, so every trial gets a fresh copy
+        database = File.createTempFile("recipes-concurrency-", ".db");
+        Files.copy(CatalogFixture.get(recipes).toPath(), database.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Connection connection = open();
+        try {
+            Statement statement = connection.createStatement();
+            statement.execute("PRAGMA journal_mode = " + journalMode);
+            statement.close();
+            List<String> recipeIds = CatalogFixture.recipeIds(connection);
+            ids = recipeIds.toArray(new String[0]);
+        } finally {
+            connection.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        new File(database.getPath() + "-wal").delete();
+        new File(database.getPath() + "-shm").delete();
+        database.delete();
+    }
+
+    Connection open() throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database.getPath());
+        Statement statement = connection.createStatement();
+        statement.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+        // Android syncs less often in write-ahead logging mode
+        statement.execute("PRAGMA synchronous = " + (journalMode.equals("wal") ? "NORMAL" : "FULL"));
+        statement.close();
+        return connection;
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        private Connection connection;
+        private PreparedStatement fullRecipe;
+        private String[] ids;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrencyBenchmark benchmark) throws SQLException {
+            connection = benchmark.open();
+            fullRecipe = connection.prepareStatement(RecipeStatements.fullRecipe());
+            ids = benchmark.ids;
+            // readers start their walks at different recipes
+            next = (int) (Thread.currentThread().getId() * 104729 % ids.length);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+
+        Recipe read() throws SQLException {
+            next = (next + 7919) % ids.length;
+            String id = ids[next];
+            return Recipe.fromFullCursor(JdbcCursor.query(fullRecipe, id, id, id));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        private Connection connection;
+        private PreparedStatement updateRecipe;
+        private PreparedStatement updateIngredients;
+        private String[] ids;
+        private int next;
+        private int version;
+
+        @Setup(Level.Trial)
+        public void setUp(ConcurrencyBenchmark benchmark) throws SQLException {
+            connection = benchmark.open();
+            connection.setAutoCommit(false);
+            updateRecipe = connection.prepareStatement(
+                    "UPDATE recipes SET description = description || ? WHERE _id = ?");
+            updateIngredients = connection.prepareStatement(
+                    "UPDATE recipe_ingredients SET amount = ? WHERE recipe_id = ?");
+            ids = benchmark.ids;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+
+        int write() throws SQLException {
+            next = (next + 104729) % ids.length;
+            String id = ids[next];
+            version++;
+            updateRecipe.setString(1, " v" + version);
+            updateRecipe.setString(2, id);
+            int rows = updateRecipe.executeUpdate();
+            updateIngredients.setString(1, version + " cups");
+            updateIngredients.setString(2, id);
+            rows += updateIngredients.executeUpdate();
+            connection.commit();
+            return rows;
+        }
+    }
+
+    @Benchmark
+    @Group("catalogSync")
+    @GroupThreads(4)
+    public Recipe read(Reader reader) throws SQLException {
+        return reader.read();
+    }
+
+    @Benchmark
+    @Group("catalogSync")
+    @GroupThreads(1)
+    public int write(Writer writer) throws SQLException {
+        return writer.write();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.benchmark;
+
+import com.sopan.app_link.database.RecipeStatements;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The first page of recipes containing all of a few ingredients: the index merge behind
+ * recipe/containing against LIKE scans of the ingredient descriptions, one per ingredient.
+ * The ingredient sets range from the two most common ingredients of the generated catalogs
+ * to two of the rarest.
+ *
+ * Setup fails unless the ingredient lists are intersected with a merge.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContainingBenchmark {
+
+    private static final String PAGE_SIZE = "20";
+
+    @Param({"10000", "100000"})
+    public int recipes;
+
+    @Param({"salt,black pepper", "garlic,lemon,parsley", "sumac,rhubarb"})
+    public String ingredients;
+
+    private Connection connection;
+    private PreparedStatement containing;
+    private PreparedStatement like;
+    private String[] containingArgs;
+    private String[] likeArgs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        connection = CatalogFixture.open(recipes);
+        String[] names = ingredients.split(",");
+        String sql = RecipeStatements.recipesContaining(names.length);
+        containingArgs = new String[names.length + 2];
+        System.arraycopy(names, 0, containingArgs, 0, names.length);
+        containingArgs[names.length] = PAGE_SIZE;
+        containingArgs[names.length + 1] = "0";
+        requireMerge(sql, containingArgs);
+        containing = connection.prepareStatement(sql);
+
+        // what the question took without the dictionary: a LIKE scan per ingredient, where
+        // LIKE without wildcards is the same case-insensitive match as the normalized name
+        StringBuilder where = new StringBuilder();
+        likeArgs = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            where.append(i == 0 ? " WHERE " : " AND ").append("_id IN (SELECT recipe_id FROM recipe_ingredients"
+                    + " WHERE description LIKE ?)");
+            likeArgs[i] = names[i];
+        }
+        like = connection.prepareStatement("SELECT _id, title, prep_time, photo FROM recipes" + where
+                + " ORDER BY _id LIMIT " + PAGE_SIZE);
+    }
+
+    private void requireMerge(String sql, String[] args) throws SQLException {
+        PreparedStatement explain = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+        StringBuilder plan = new StringBuilder();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                explain.setString(i + 1, args[i]);
+            }
+            ResultSet rows = explain.executeQuery();
+            while (rows.next()) {
+                plan.append(rows.getString("detail")).append('\n');
+            }
+        } finally {
+            explain.close();
+        }
+        if (!plan.toString().contains("MERGE (INTERSECT)")) {
+            throw new IllegalStateException("Not an index merge: " + sql + "\n" + plan);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public JdbcCursor containing() throws SQLException {
+        return JdbcCursor.query(containing, containingArgs);
+    }
+
+    @Benchmark
+    public JdbcCursor like() throws SQLException {
+        return JdbcCursor.query(like, likeArgs);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.benchmark;
+
+import com.sopan.app_link.Recipe;
+import com.sopan.app_link.database.FlatRecipeStore;
+import com.sopan.app_link.database.RecipeStatements;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.FileInputStream;
+import java.nio.channels.FileChannel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a whole recipe by id from the memory-mapped flat catalog against the provider's
+ * full-recipe query plus mapping, over the same generated catalogs and the same walk over
+ * the ids as {@link QueryBenchmark}.
+ *
+ * The provider path here leaves out what the app also pays for it: the cursor window copy
+ * and the binder call of the content resolver.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlatStoreBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int recipes;
+
+    private Connection connection;
+    private PreparedStatement fullRecipe;
+    private FlatRecipeStore flatStore;
+    private String[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        connection = CatalogFixture.open(recipes);
+        List<String> recipeIds = CatalogFixture.recipeIds(connection);
+        ids = recipeIds.toArray(new String[0]);
+        fullRecipe = connection.prepareStatement(RecipeStatements.fullRecipe());
+        FileInputStream in = new FileInputStream(CatalogFixture.getFlat(recipes));
+        try {
+            FileChannel channel = in.getChannel();
+            flatStore = new FlatRecipeStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            in.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    private String nextId() {
+        next = (next + 7919) % ids.length;
+        return ids[next];
+    }
+
+    @Benchmark
+    public Recipe flatStore() {
+        return flatStore.getRecipe(nextId());
+    }
+
+    @Benchmark
+    public Recipe provider() throws SQLException {
+        String id = nextId();
+        return Recipe.fromFullCursor(JdbcCursor.query(fullRecipe, id, id, id));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.benchmark;
+
+import android.database.Cursor;
+
+import com.sopan.app_link.Recipe;
+import com.sopan.app_link.database.FoodIngredientTable;
+import com.sopan.app_link.database.FoodInstructionsTable;
+import com.sopan.app_link.database.FoodTable;
+
+/**
+ * The cursor mapping as it was before Recipe.Mapper: every row scans the column names and
+ * compares them with the column constants. Kept as the baseline for MapperBenchmark.
+ */
+final class LegacyMappers {
+
+    private LegacyMappers() {
+    }
+
+    static Recipe recipeFromCursor(Cursor cursor) {
+        String id = null;
+        String title = null;
+        String description = null;
+        String photo = null;
+        String prepTime = null;
+        for (int c = 0; c < cursor.getColumnCount(); c++) {
+            String columnName = cursor.getColumnName(c);
+            if (columnName.equals(FoodTable.ID_COLUMN)) {
+                id = cursor.getString(c);
+            } else if (columnName.equals(FoodTable.TITLE_COLUMN)) {
+                title = cursor.getString(c);
+            } else if (columnName.equals(FoodTable.DESCRIPTION_COLUMN)) {
+                description = cursor.getString(c);
+            } else if (columnName.equals(FoodTable.PHOTO_COLUMN)) {
+                photo = cursor.getString(c);
+            } else if (columnName.equals(FoodTable.PREP_TIME_COLUMN)) {
+                prepTime = cursor.getString(c);
+            }
+        }
+        Recipe recipe = new Recipe(id);
+        recipe.setTitle(title);
+        recipe.setDescription(description);
+        recipe.setPhoto(photo);
+        recipe.setPrepTime(prepTime);
+        return recipe;
+    }
+
+    static Recipe.Ingredient ingredientFromCursor(Cursor cursor) {
+        Recipe.Ingredient ingredient = new Recipe.Ingredient();
+        for (int c = 0; c < cursor.getColumnCount(); c++) {
+            String columnName = cursor.getColumnName(c);
+            if (columnName.equals(FoodIngredientTable.AMOUNT_COLUMN)) {
+                ingredient.setAmount(cursor.getString(c));
+            } else if (columnName.equals(FoodIngredientTable.DESCRIPTION_COLUMN)) {
+                ingredient.setDescription(cursor.getString(c));
+            }
+        }
+        return ingredient;
+    }
+
+    static Recipe.Step stepFromCursor(Cursor cursor) {
+        Recipe.Step step = new Recipe.Step();
+        for (int c = 0; c < cursor.getColumnCount(); c++) {
+            String columnName = cursor.getColumnName(c);
+            if (columnName.equals(FoodInstructionsTable.DESCRIPTION_COLUMN)) {
+                step.setDescription(cursor.getString(c));
+            } else if (columnName.equals(FoodInstructionsTable.PHOTO_COLUMN)) {
+                step.setPhoto(cursor.getString(c));
+            }
+        }
+        return step;
+    }
+}
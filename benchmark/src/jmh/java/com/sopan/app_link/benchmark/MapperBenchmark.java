@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.benchmark;
+
+import android.database.MatrixCursor;
+
+import com.sopan.app_link.Recipe;
+import com.sopan.app_link.database.FoodIngredientTable;
+import com.sopan.app_link.database.FoodInstructionsTable;
+import com.sopan.app_link.database.FoodTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cursor to model mapping: the index-resolving mappers against the per-row column name
+ * scan they replaced. The cursors are in memory so only the mapping is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MapperBenchmark {
+
+    @Param({"10", "1000"})
+    public int rows;
+
+    private MatrixCursor recipes;
+    private MatrixCursor ingredients;
+    private MatrixCursor steps;
+
+    @Setup
+    public void setUp() {
+        recipes = new MatrixCursor(new String[]{FoodTable.ID_COLUMN, FoodTable.TITLE_COLUMN,
+                FoodTable.DESCRIPTION_COLUMN, FoodTable.PHOTO_COLUMN, FoodTable.PREP_TIME_COLUMN}, rows);
+        ingredients = new MatrixCursor(new String[]{FoodIngredientTable.ID_COLUMN,
+                FoodIngredientTable.AMOUNT_COLUMN, FoodIngredientTable.DESCRIPTION_COLUMN}, rows);
+        steps = new MatrixCursor(new String[]{FoodInstructionsTable.NUM_COLUMN,
+                FoodInstructionsTable.DESCRIPTION_COLUMN, FoodInstructionsTable.PHOTO_COLUMN}, rows);
+        for (int i = 0; i < rows; i++) {
+            recipes.addRow(new Object[]{"recipe-" + i, "Title " + i, "Description " + i,
+                    "http://example.com/" + i + ".jpg", i + " minutes"});
+            ingredients.addRow(new Object[]{i, i + " cups", "Ingredient " + i});
+            steps.addRow(new Object[]{i + 1, "Step " + i, "http://example.com/step-" + i + ".jpg"});
+        }
+    }
+
+    @Benchmark
+    public void recipeMapper(Blackhole blackhole) {
+        Recipe.Mapper mapper = new Recipe.Mapper(recipes);
+        recipes.moveToPosition(-1);
+        while (recipes.moveToNext()) {
+            blackhole.consume(mapper.map(recipes));
+        }
+    }
+
+    @Benchmark
+    public void recipeLegacy(Blackhole blackhole) {
+        recipes.moveToPosition(-1);
+        while (recipes.moveToNext()) {
+            blackhole.consume(LegacyMappers.recipeFromCursor(recipes));
+        }
+    }
+
+    @Benchmark
+    public List<Recipe.Ingredient> ingredientList() {
+        return Recipe.Ingredient.listFromCursor(ingredients);
+    }
+
+    @Benchmark
+    public void ingredientLegacy(Blackhole blackhole) {
+        ingredients.moveToPosition(-1);
+        while (ingredients.moveToNext()) {
+            blackhole.consume(LegacyMappers.ingredientFromCursor(ingredients));
+        }
+    }
+
+    @Benchmark
+    public List<Recipe.Step> stepList() {
+        return Recipe.Step.listFromCursor(steps);
+    }
+
+    @Benchmark
+    public void stepLegacy(Blackhole blackhole) {
+        steps.moveToPosition(-1);
+        while (steps.moveToNext()) {
+            blackhole.consume(LegacyMappers.stepFromCursor(steps));
+        }
+    }
+}
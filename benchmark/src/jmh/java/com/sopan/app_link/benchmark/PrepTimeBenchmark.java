@@ -0,0 +1,174 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.benchmark;
+
+import com.sopan.app_link.database.FoodTable;
+import com.sopan.app_link.database.PrepTimeParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A page of the recipe list filtered or sorted by prep time, the way the provider builds
+ * it with its prep time parameters, against the full scan that parses the prep_time text of
+ * every recipe that it replaces.
+ *
+ * Setup fails if a query on prep_time_minutes does not run on the covering prep time
+ * index, so the numbers are always index-only ones.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrepTimeBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final int MAX_MINUTES = 30;
+
+    private static final String COLUMNS = FoodTable.ID + ", " + FoodTable.TITLE + ", " + FoodTable.PREP_TIME;
+    private static final String SORT_BY_PREP_TIME = FoodTable.PREP_TIME_MINUTES + ", " + FoodTable.TITLE + ", "
+            + FoodTable.ID;
+
+    private static final String QUICKEST = "SELECT " + COLUMNS + " FROM " + FoodTable.TABLE
+            + " WHERE " + FoodTable.PREP_TIME_MINUTES + " >= ? ORDER BY " + SORT_BY_PREP_TIME + " LIMIT " + PAGE_SIZE;
+    private static final String UNDER = "SELECT " + COLUMNS + " FROM " + FoodTable.TABLE
+            + " WHERE " + FoodTable.PREP_TIME_MINUTES + " <= ? AND " + FoodTable.PREP_TIME_MINUTES + " >= ?"
+            + " ORDER BY " + SORT_BY_PREP_TIME + " LIMIT " + PAGE_SIZE;
+    private static final String COUNT_UNDER = "SELECT count(*) FROM " + FoodTable.TABLE
+            + " WHERE " + FoodTable.PREP_TIME_MINUTES + " <= ?";
+    private static final String SCAN = "SELECT " + COLUMNS + " FROM " + FoodTable.TABLE;
+
+    @Param({"10000", "100000"})
+    public int recipes;
+
+    private Connection connection;
+    private PreparedStatement quickest;
+    private PreparedStatement under;
+    private PreparedStatement countUnder;
+    private PreparedStatement scan;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        connection = CatalogFixture.open(recipes);
+        requireCoveringIndex(QUICKEST);
+        requireCoveringIndex(UNDER);
+        requireCoveringIndex(COUNT_UNDER);
+        quickest = connection.prepareStatement(QUICKEST);
+        under = connection.prepareStatement(UNDER);
+        countUnder = connection.prepareStatement(COUNT_UNDER);
+        scan = connection.prepareStatement(SCAN);
+    }
+
+    private void requireCoveringIndex(String sql) throws SQLException {
+        StringBuilder details = new StringBuilder();
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet plan = statement.executeQuery("EXPLAIN QUERY PLAN " + sql);
+            while (plan.next()) {
+                details.append(plan.getString("detail")).append('\n');
+            }
+        } finally {
+            statement.close();
+        }
+        if (!details.toString().contains("COVERING INDEX recipes_prep_time_minutes_idx")
+                || details.toString().contains("TEMP B-TREE")) {
+            throw new IllegalStateException("Not index-only: " + sql + "\n" + details);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * The quickest recipes first, as with the provider's SORT_BY_PREP_TIME and
+     * min_prep_time=0.
+     */
+    @Benchmark
+    public int quickest() throws SQLException {
+        return JdbcCursor.query(quickest, "0").getCount();
+    }
+
+    /**
+     * The quickest recipes of at most 30 minutes.
+     */
+    @Benchmark
+    public int underThirtyMinutes() throws SQLException {
+        return JdbcCursor.query(under, Integer.toString(MAX_MINUTES), "0").getCount();
+    }
+
+    @Benchmark
+    public int countUnderThirtyMinutes() throws SQLException {
+        countUnder.setString(1, Integer.toString(MAX_MINUTES));
+        ResultSet rows = countUnder.executeQuery();
+        rows.next();
+        return rows.getInt(1);
+    }
+
+    /**
+     * The same page as {@link #underThirtyMinutes} without the column: every prep_time is
+     * read and parsed.
+     */
+    @Benchmark
+    public List<String[]> underThirtyMinutesByScan() throws SQLException {
+        List<Object[]> matches = new ArrayList<Object[]>();
+        ResultSet rows = scan.executeQuery();
+        while (rows.next()) {
+            int minutes = PrepTimeParser.parseMinutes(rows.getString(3));
+            if (minutes != PrepTimeParser.UNKNOWN && minutes <= MAX_MINUTES) {
+                matches.add(new Object[]{minutes, rows.getString(2), rows.getString(1), rows.getString(3)});
+            }
+        }
+        rows.close();
+        Collections.sort(matches, new Comparator<Object[]>() {
+            @Override
+            public int compare(Object[] a, Object[] b) {
+                int byMinutes = Integer.compare((Integer) a[0], (Integer) b[0]);
+                if (byMinutes != 0) {
+                    return byMinutes;
+                }
+                int byTitle = ((String) a[1]).compareTo((String) b[1]);
+                return byTitle != 0 ? byTitle : ((String) a[2]).compareTo((String) b[2]);
+            }
+        });
+        List<String[]> page = new ArrayList<String[]>(PAGE_SIZE);
+        for (int i = 0; i < Math.min(PAGE_SIZE, matches.size()); i++) {
+            Object[] match = matches.get(i);
+            page.add(new String[]{(String) match[2], (String) match[1], (String) match[3]});
+        }
+        return page;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.benchmark;
+
+import com.sopan.app_link.Recipe;
+import com.sopan.app_link.database.RecipeStatements;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The provider's id-based query paths, query plus mapping, against generated catalogs.
+ * Each invocation looks up the next recipe of a fixed pseudo-random walk over all ids, so
+ * runs are repeatable and do not keep hitting the same pages.
+ *
+ * fullRecipe is what showRecipe loads today; threeQueryRecipe is the same recipe read
+ * through the three separate URIs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int recipes;
+
+    private Connection connection;
+    private PreparedStatement recipeById;
+    private PreparedStatement ingredientsByRecipe;
+    private PreparedStatement instructionsByRecipe;
+    private PreparedStatement fullRecipe;
+    private String[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        connection = CatalogFixture.open(recipes);
+        List<String> recipeIds = CatalogFixture.recipeIds(connection);
+        ids = recipeIds.toArray(new String[0]);
+        // the provider caches its statements the same way
+        recipeById = connection.prepareStatement(RecipeStatements.recipeById());
+        ingredientsByRecipe = connection.prepareStatement(RecipeStatements.ingredientsByRecipe());
+        instructionsByRecipe = connection.prepareStatement(RecipeStatements.instructionsByRecipe());
+        fullRecipe = connection.prepareStatement(RecipeStatements.fullRecipe());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    private String nextId() {
+        // a stride coprime with any catalog size that is not a multiple of 7919
+        next = (next + 7919) % ids.length;
+        return ids[next];
+    }
+
+    @Benchmark
+    public Recipe recipeById() throws SQLException {
+        JdbcCursor cursor = JdbcCursor.query(recipeById, nextId());
+        cursor.moveToFirst();
+        return Recipe.fromCursor(cursor);
+    }
+
+    @Benchmark
+    public List<Recipe.Ingredient> ingredientsByRecipe() throws SQLException {
+        return Recipe.Ingredient.listFromCursor(JdbcCursor.query(ingredientsByRecipe, nextId()));
+    }
+
+    @Benchmark
+    public List<Recipe.Step> instructionsByRecipe() throws SQLException {
+        return Recipe.Step.listFromCursor(JdbcCursor.query(instructionsByRecipe, nextId()));
+    }
+
+    @Benchmark
+    public Recipe fullRecipe() throws SQLException {
+        String id = nextId();
+        return Recipe.fromFullCursor(JdbcCursor.query(fullRecipe, id, id, id));
+    }
+
+    @Benchmark
+    public Recipe threeQueryRecipe() throws SQLException {
+        String id = nextId();
+        JdbcCursor cursor = JdbcCursor.query(recipeById, id);
+        cursor.moveToFirst();
+        Recipe recipe = Recipe.fromCursor(cursor);
+        for (Recipe.Ingredient ingredient : Recipe.Ingredient.listFromCursor(JdbcCursor.query(ingredientsByRecipe, id))) {
+            recipe.addIngredient(ingredient);
+        }
+        for (Recipe.Step step : Recipe.Step.listFromCursor(JdbcCursor.query(instructionsByRecipe, id))) {
+            recipe.addStep(step);
+        }
+        return recipe;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.benchmark;
+
+import android.database.Cursor;
+
+import com.sopan.app_link.database.RecipeStatements;
+import com.sopan.app_link.database.SearchRanker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The first page of recipe search results: the full-text index behind recipe/search, with
+ * its matches ranked by SearchRanker, against a LIKE scan over the same columns.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"10000", "100000"})
+    public int recipes;
+
+    @Param({"saff", "garlic honey", "zucchini"})
+    public String query;
+
+    private Connection connection;
+    private PreparedStatement fts;
+    private PreparedStatement like;
+    private String matchQuery;
+    private String likePattern;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        connection = CatalogFixture.open(recipes);
+        fts = connection.prepareStatement(RecipeStatements.search());
+        // what search looked like without the index: one pattern, every column scanned
+        like = connection.prepareStatement("SELECT _id, title, prep_time, photo FROM recipes"
+                + " WHERE title LIKE ?1 OR description LIKE ?1"
+                + " OR _id IN (SELECT recipe_id FROM recipe_ingredients WHERE description LIKE ?1)"
+                + " ORDER BY title LIMIT " + PAGE_SIZE);
+        // prefix terms, as FoodContentProvider.buildMatchQuery builds them
+        matchQuery = query.replace(" ", "* ") + "*";
+        likePattern = "%" + query.replace(' ', '%') + "%";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public Cursor fts() throws SQLException {
+        return SearchRanker.rank(JdbcCursor.query(fts, matchQuery), PAGE_SIZE, 0);
+    }
+
+    @Benchmark
+    public JdbcCursor like() throws SQLException {
+        return JdbcCursor.query(like, likePattern);
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.tools;
+
+import com.sopan.app_link.database.IngredientParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Generates large recipe catalogs for scale testing. The output starts from a copy of the
+ * bundled recipes.db, so it has the app's exact schema, version, indexes and search
+ * triggers, and RecipeDatabaseHelper opens it as is.
+ *
+ * Recipes get a lognormal number of ingredients and steps around the bundled catalog's
+ * averages, and ingredient names follow a Zipf distribution, so a few staples such as salt
+ * and garlic show up in most recipes while the rest are rare. The same seed always produces
+ * the same catalog.
+ *
+ * Rows are written in large batches with the indexes and triggers dropped, and the search
+ * index is rebuilt in one pass at the end.
+ *
+ * Usage: CatalogGenerator &lt;recipes.db&gt; &lt;output.db&gt; [--recipes n] [--seed n]
+ */
+public class CatalogGenerator {
+
+    public static final long DEFAULT_SEED = 42;
+    private static final int DEFAULT_RECIPES = 10000;
+
+    // rows are sent to SQLite in batches and committed in larger chunks
+    private static final int BATCH_RECIPES = 1000;
+    private static final int TRANSACTION_RECIPES = 100000;
+
+    // medians and spreads of the per-recipe fan-out, close to the bundled catalog
+    private static final double INGREDIENTS_MEDIAN = 11;
+    private static final double INGREDIENTS_SIGMA = 0.4;
+    private static final int MIN_INGREDIENTS = 3;
+    private static final int MAX_INGREDIENTS = 30;
+    private static final double STEPS_MEDIAN = 6;
+    private static final double STEPS_SIGMA = 0.35;
+    private static final int MIN_STEPS = 2;
+    private static final int MAX_STEPS = 20;
+    private static final double PREP_MINUTES_MEDIAN = 40;
+    private static final double PREP_MINUTES_SIGMA = 0.7;
+    private static final double STEP_PHOTO_PROBABILITY = 0.25;
+
+    private static final String PHOTO_BASE_URL = "http://storage.googleapis.com/recipe-app/img/recipes/";
+
+    static final String[] ADJECTIVES = {"Grilled", "Roasted", "Spicy", "Smoky", "Honeyed", "Crispy",
+            "Braised", "Pan-Fried", "Lemony", "Herbed", "Creamy", "Charred", "Baked", "Stuffed", "Glazed",
+            "Slow-Cooked", "Poached", "Sticky", "Rustic", "Summer", "Winter", "Garlicky", "Zesty", "Wedge"};
+    static final String[] DISHES = {"Salad", "Paella", "Soup", "Curry", "Risotto", "Tacos", "Stew",
+            "Pasta", "Pie", "Roast", "Skewers", "Gratin", "Poutine", "Burger", "Casserole", "Frittata",
+            "Flatbread", "Noodles", "Bowl", "Tart", "Chowder", "Sandwich", "Pilaf", "Bake"};
+    // most common first, ingredient ranks are drawn from a Zipf distribution
+    static final String[] INGREDIENTS = {"Salt", "Black pepper", "Olive oil", "Garlic", "Onion",
+            "Butter", "Sugar", "Flour", "Eggs", "Lemon", "Water", "Milk", "Tomatoes", "Parsley",
+            "Chicken breast", "Potatoes", "Shallot", "Cream", "Paprika", "Rice", "Honey", "Basil",
+            "Carrots", "Celery", "Chili flakes", "Soy sauce", "Ginger", "Cumin", "Thyme", "Vinegar",
+            "Parmesan", "Sour cream", "Fresh dill", "Chives", "Bacon", "Shrimp", "Mushrooms",
+            "Spinach", "Bell pepper", "Cilantro", "Lime", "Coconut milk", "Chickpeas", "Feta",
+            "Halloumi cheese", "Saffron", "Chorizo", "Mussels", "Rosemary", "Oregano", "Cinnamon",
+            "Nutmeg", "Brown sugar", "Maple syrup", "Dijon mustard", "Mayonnaise", "Blue cheese",
+            "Iceberg lettuce", "Zucchini", "Eggplant", "Leeks", "Fennel", "Capers", "Anchovies",
+            "Pine nuts", "Walnuts", "Almonds", "Pistachios", "Quinoa", "Lentils", "Black beans",
+            "Cheddar", "Gruyere", "Cheese curds", "Beef stock", "Pierogi", "Pork shoulder",
+            "Lamb", "Salmon", "Cod", "Tofu", "Sesame oil", "Fish sauce", "Tamarind", "Star anise",
+            "Cardamom", "Turmeric", "Sumac", "Pomegranate", "Rhubarb"};
+    static final String[] AMOUNTS = {"1 cup", "1/2 cup", "2 T", "1 T", "4 T", "2-3 T", "1 tsp",
+            "1/4 tsp", "pinch", "4 cloves", "1", "1/2", "2", "3", "1 1/2 lbs", "1 lb", "200 g", "250 g",
+            "500 ml", "to taste"};
+    static final String[] WORDS = {"stir", "until", "golden", "heat", "the", "with", "and", "add",
+            "season", "serve", "slowly", "over", "medium", "bowl", "fresh", "minutes", "toss", "gently",
+            "into", "pan", "a", "of", "chop", "finely", "simmer", "for", "oven", "bake", "cool", "whisk",
+            "together", "large", "small", "pot", "low", "high", "drain", "set", "aside", "mix", "well",
+            "combine", "remaining", "top", "warm", "crisp", "tender", "sauce", "pour", "layer"};
+
+    private static final double[] INGREDIENT_WEIGHTS = zipfCumulative(INGREDIENTS.length, 1.0);
+    private static final String[] INGREDIENT_WORDS = lowerCase(INGREDIENTS);
+    // what IngredientParser makes of each amount, as the app writes it
+    private static final double[] AMOUNT_QUANTITIES = new double[AMOUNTS.length];
+    private static final String[] AMOUNT_UNITS = new String[AMOUNTS.length];
+
+    static {
+        for (int i = 0; i < AMOUNTS.length; i++) {
+            AMOUNT_QUANTITIES[i] = IngredientParser.parseQuantity(AMOUNTS[i]);
+            AMOUNT_UNITS[i] = IngredientParser.parseUnit(AMOUNTS[i]);
+        }
+    }
+
+    private CatalogGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: CatalogGenerator <recipes.db> <output.db> [--recipes n] [--seed n]");
+            System.exit(2);
+        }
+        int recipes = DEFAULT_RECIPES;
+        long seed = DEFAULT_SEED;
+        for (int i = 2; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            if (args[i].equals("--recipes")) {
+                recipes = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("--seed")) {
+                seed = Long.parseLong(args[i + 1]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        long start = System.nanoTime();
+        generate(new File(args[0]), new File(args[1]), recipes, seed);
+        System.out.println("Generated " + recipes + " recipes in "
+                + (System.nanoTime() - start) / 1000000 + " ms, " + new File(args[1]).length() + " bytes");
+    }
+
+    /**
+     * Writes a catalog of the given number of recipes, with the schema of the template
+     * database. The catalog is built in a temporary file, so a failed run never leaves half
+     * a database behind.
+     */
+    public static void generate(File template, File output, int recipes, long seed)
+            throws IOException, SQLException {
+        File partial = new File(output.getPath() + ".partial");
+        Files.copy(template.toPath(), partial.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + partial.getPath());
+        try {
+            fill(connection, recipes, seed);
+        } finally {
+            connection.close();
+        }
+        Files.move(partial.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void fill(Connection connection, int recipes, long seed) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            // the file is thrown away if the run fails, so there is nothing to journal
+            statement.execute("PRAGMA journal_mode = OFF");
+            statement.execute("PRAGMA synchronous = OFF");
+            statement.execute("PRAGMA cache_size = -131072");
+            connection.setAutoCommit(false);
+
+            // indexes and triggers are recreated once the rows are in
+            List<String> indexes = new ArrayList<String>();
+            List<String> triggers = new ArrayList<String>();
+            ResultSet rows = statement.executeQuery("SELECT type, name, sql FROM sqlite_master"
+                    + " WHERE type IN ('index', 'trigger') AND sql IS NOT NULL");
+            List<String> drops = new ArrayList<String>();
+            while (rows.next()) {
+                String type = rows.getString(1);
+                (type.equals("index") ? indexes : triggers).add(rows.getString(3));
+                drops.add("DROP " + type.toUpperCase(Locale.US) + " " + rows.getString(2));
+            }
+            rows.close();
+            for (String drop : drops) {
+                statement.execute(drop);
+            }
+            statement.execute("DELETE FROM recipe_ingredients");
+            statement.execute("DELETE FROM recipe_instructions");
+            statement.execute("DELETE FROM recipes");
+            statement.execute("DELETE FROM recipes_fts");
+            statement.execute("DELETE FROM sqlite_sequence");
+            statement.execute("DELETE FROM ingredient_dictionary");
+
+            insertIngredientNames(connection);
+            insertRecipes(connection, recipes, new SplittableRandom(seed));
+
+            for (String index : indexes) {
+                statement.execute(index);
+            }
+            // same as FoodSearchTable.REBUILD
+            statement.execute("INSERT INTO recipes_fts (docid, title, description, ingredients)"
+                    + " SELECT search_id, title, description, (SELECT group_concat(description, ' ')"
+                    + " FROM recipe_ingredients WHERE recipe_id = recipes._id) FROM recipes");
+            for (String trigger : triggers) {
+                statement.execute(trigger);
+            }
+            connection.commit();
+        } finally {
+            statement.close();
+        }
+    }
+
+    /**
+     * Interns the ingredients, each under its index in {@link #INGREDIENTS} plus one.
+     */
+    private static void insertIngredientNames(Connection connection) throws SQLException {
+        PreparedStatement insertName = connection.prepareStatement(
+                "INSERT INTO ingredient_dictionary (_id, name) VALUES (?, ?)");
+        try {
+            for (int i = 0; i < INGREDIENTS.length; i++) {
+                insertName.setInt(1, i + 1);
+                insertName.setString(2, IngredientParser.normalizeName(INGREDIENTS[i]));
+                insertName.addBatch();
+            }
+            insertName.executeBatch();
+        } finally {
+            insertName.close();
+        }
+    }
+
+    private static void insertRecipes(Connection connection, int recipes, SplittableRandom random) throws SQLException {
+        PreparedStatement insertRecipe = connection.prepareStatement(
+                "INSERT INTO recipes (_id, title, description, prep_time, photo, prep_time_minutes, search_id)"
+                        + " VALUES (?, ?, ?, ?, ?, ?, ?)");
+        PreparedStatement insertIngredient = connection.prepareStatement(
+                "INSERT INTO recipe_ingredients (recipe_id, amount, description, ingredient_id, quantity, unit)"
+                        + " VALUES (?, ?, ?, ?, ?, ?)");
+        PreparedStatement insertStep = connection.prepareStatement(
+                "INSERT INTO recipe_instructions (recipe_id, num, description, photo) VALUES (?, ?, ?, ?)");
+        try {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < recipes; i++) {
+                int main = ingredient(random);
+                String title = pick(random, ADJECTIVES) + " " + INGREDIENTS[main] + " " + pick(random, DISHES);
+                String id = slug(title, text) + "-" + i;
+                insertRecipe.setString(1, id);
+                insertRecipe.setString(2, title);
+                insertRecipe.setString(3, sentence(random, text, 20 + random.nextInt(40)) + " "
+                        + INGREDIENT_WORDS[main] + ".");
+                int prepMinutes = roundPrepMinutes(lognormal(random, PREP_MINUTES_MEDIAN, PREP_MINUTES_SIGMA, 5, 600));
+                insertRecipe.setString(4, prepTime(prepMinutes));
+                insertRecipe.setString(5, PHOTO_BASE_URL + id + ".jpg");
+                // what PrepTimeParser makes of the prep time, as the app writes it
+                insertRecipe.setInt(6, prepMinutes);
+                // the insert trigger that would assign it is dropped while the rows go in
+                insertRecipe.setInt(7, i + 1);
+                insertRecipe.addBatch();
+
+                int ingredients = lognormal(random, INGREDIENTS_MEDIAN, INGREDIENTS_SIGMA,
+                        MIN_INGREDIENTS, MAX_INGREDIENTS);
+                for (int j = 0; j < ingredients; j++) {
+                    int amount = random.nextInt(AMOUNTS.length);
+                    int ingredient = j == 0 ? main : ingredient(random);
+                    insertIngredient.setString(1, id);
+                    insertIngredient.setString(2, AMOUNTS[amount]);
+                    insertIngredient.setString(3, INGREDIENTS[ingredient]);
+                    insertIngredient.setInt(4, ingredient + 1);
+                    if (Double.isNaN(AMOUNT_QUANTITIES[amount])) {
+                        insertIngredient.setNull(5, Types.DOUBLE);
+                    } else {
+                        insertIngredient.setDouble(5, AMOUNT_QUANTITIES[amount]);
+                    }
+                    if (AMOUNT_UNITS[amount] == null) {
+                        insertIngredient.setNull(6, Types.VARCHAR);
+                    } else {
+                        insertIngredient.setString(6, AMOUNT_UNITS[amount]);
+                    }
+                    insertIngredient.addBatch();
+                }
+                int steps = lognormal(random, STEPS_MEDIAN, STEPS_SIGMA, MIN_STEPS, MAX_STEPS);
+                for (int j = 1; j <= steps; j++) {
+                    insertStep.setString(1, id);
+                    insertStep.setInt(2, j);
+                    insertStep.setString(3, sentence(random, text, 8 + random.nextInt(32)) + ".");
+                    if (random.nextDouble() < STEP_PHOTO_PROBABILITY) {
+                        insertStep.setString(4, PHOTO_BASE_URL + id + "-" + j + ".jpg");
+                    } else {
+                        insertStep.setNull(4, Types.VARCHAR);
+                    }
+                    insertStep.addBatch();
+                }
+
+                if (i % BATCH_RECIPES == BATCH_RECIPES - 1) {
+                    insertRecipe.executeBatch();
+                    insertIngredient.executeBatch();
+                    insertStep.executeBatch();
+                }
+                if (i % TRANSACTION_RECIPES == TRANSACTION_RECIPES - 1) {
+                    connection.commit();
+                }
+            }
+            insertRecipe.executeBatch();
+            insertIngredient.executeBatch();
+            insertStep.executeBatch();
+        } finally {
+            insertRecipe.close();
+            insertIngredient.close();
+            insertStep.close();
+        }
+    }
+
+    /**
+     * Formats a prep time the way the bundled catalog does, for example "35 minutes",
+     * "1 hour" or "2 hours 15 minutes".
+     */
+    static String prepTime(int minutes) {
+        minutes = roundPrepMinutes(minutes);
+        int hours = minutes / 60;
+        minutes %= 60;
+        if (hours == 0) {
+            return minutes + " minutes";
+        }
+        String time = hours + (hours == 1 ? " hour" : " hours");
+        return minutes == 0 ? time : time + " " + minutes + " minutes";
+    }
+
+    private static int roundPrepMinutes(int minutes) {
+        return Math.max(5, minutes / 5 * 5);
+    }
+
+    /**
+     * Draws the index of an ingredient, with the most common ones most likely.
+     */
+    private static int ingredient(SplittableRandom random) {
+        double value = random.nextDouble() * INGREDIENT_WEIGHTS[INGREDIENT_WEIGHTS.length - 1];
+        int low = 0;
+        int high = INGREDIENT_WEIGHTS.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (INGREDIENT_WEIGHTS[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static double[] zipfCumulative(int count, double exponent) {
+        double[] cumulative = new double[count];
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+
+    private static String[] lowerCase(String[] values) {
+        String[] lowerCase = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            lowerCase[i] = values[i].toLowerCase(Locale.US);
+        }
+        return lowerCase;
+    }
+
+    /**
+     * Turns a title into an id the way the bundled catalog's ids look, for example
+     * "Grilled Potato Salad" into "grilled-potato-salad".
+     */
+    static String slug(String title, StringBuilder text) {
+        text.setLength(0);
+        boolean separator = false;
+        for (int i = 0; i < title.length(); i++) {
+            char c = Character.toLowerCase(title.charAt(i));
+            if (c >= 'a' && c <= 'z') {
+                if (separator && text.length() > 0) {
+                    text.append('-');
+                }
+                text.append(c);
+                separator = false;
+            } else {
+                separator = true;
+            }
+        }
+        return text.toString();
+    }
+
+    private static int lognormal(SplittableRandom random, double median, double sigma, int min, int max) {
+        // Box-Muller, SplittableRandom has no nextGaussian on Java 11
+        double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        long value = Math.round(median * Math.exp(sigma * gaussian));
+        return (int) Math.max(min, Math.min(max, value));
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String sentence(SplittableRandom random, StringBuilder text, int words) {
+        text.setLength(0);
+        String first = pick(random, WORDS);
+        text.append(Character.toUpperCase(first.charAt(0))).append(first, 1, first.length());
+        for (int i = 1; i < words; i++) {
+            text.append(' ');
+            if (random.nextInt(5) == 0) {
+                text.append(INGREDIENT_WORDS[ingredient(random)]);
+            } else {
+                text.append(pick(random, WORDS));
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exports the recipe catalog into the flat file read by the app's FlatRecipeStore, which
+ * memory-maps it and serves recipes by id without SQLite.
+ *
+ * All numbers are big-endian. Strings are an int length in bytes, -1 for null, followed by
+ * that many bytes of UTF-8.
+ * <pre>
+ * int   magic ('RFC1')
+ * int   recipe count
+ * recipe count times, sorted by the UTF-8 bytes of the recipe id:
+ *   int   offset of the id from the start of the file
+ *   int   offset of the recipe record from the start of the file
+ * ids, in directory order, as strings
+ * recipe records:
+ *   string title, description, prep time, photo
+ *   int    ingredient count, then for each: long row id, string amount, string description
+ *   int    step count, then for each: string description, string photo
+ * </pre>
+ * Ingredients are in row id order and steps in step number order, as the provider returns
+ * them. The file must stay under 2 GB, since offsets are ints.
+ *
+ * Usage: FlatCatalogExporter &lt;recipes.db&gt; &lt;output.flat&gt;
+ */
+public class FlatCatalogExporter {
+
+    static final int MAGIC = 0x52464331;
+
+    private FlatCatalogExporter() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: FlatCatalogExporter <recipes.db> <output.flat>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        int count = export(new File(args[0]), new File(args[1]));
+        System.out.println("Exported " + count + " recipes in " + (System.nanoTime() - start) / 1000000
+                + " ms, " + new File(args[1]).length() + " bytes");
+    }
+
+    /**
+     * Writes the flat catalog through temporary files, so a failed export never leaves half a
+     * file behind.
+     *
+     * @return The number of recipes exported.
+     */
+    public static int export(File database, File output) throws IOException, SQLException {
+        // records are streamed to a side file while the ids and record offsets are collected
+        File records = new File(output.getPath() + ".records");
+        List<byte[]> ids = new ArrayList<byte[]>();
+        List<Long> recordOffsets = new ArrayList<Long>();
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database.getPath());
+        try {
+            OutputStream file = new FileOutputStream(records);
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+                writeRecords(connection, out, ids, recordOffsets);
+                out.flush();
+            } finally {
+                file.close();
+            }
+        } finally {
+            connection.close();
+        }
+
+        long idsSize = 0;
+        for (byte[] id : ids) {
+            idsSize += 4 + id.length;
+        }
+        long recordsStart = 8 + 8L * ids.size() + idsSize;
+        if (recordsStart + records.length() > Integer.MAX_VALUE) {
+            records.delete();
+            throw new IOException("Catalog too large for a flat file: " + (recordsStart + records.length()) + " bytes");
+        }
+
+        File partial = new File(output.getPath() + ".partial");
+        OutputStream file = new FileOutputStream(partial);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(ids.size());
+            long idOffset = 8 + 8L * ids.size();
+            for (int i = 0; i < ids.size(); i++) {
+                out.writeInt((int) idOffset);
+                out.writeInt((int) (recordsStart + recordOffsets.get(i)));
+                idOffset += 4 + ids.get(i).length;
+            }
+            for (byte[] id : ids) {
+                out.writeInt(id.length);
+                out.write(id);
+            }
+            InputStream in = new BufferedInputStream(new FileInputStream(records), 1 << 16);
+            try {
+                in.transferTo(out);
+            } finally {
+                in.close();
+            }
+            out.flush();
+        } finally {
+            file.close();
+            records.delete();
+        }
+        Files.move(partial.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return ids.size();
+    }
+
+    /**
+     * Writes every recipe in id order. Ingredients and steps are read in recipe id order as
+     * well and merged in, so the whole catalog takes three sequential scans.
+     */
+    private static void writeRecords(Connection connection, DataOutputStream out, List<byte[]> ids,
+                                     List<Long> recordOffsets) throws SQLException, IOException {
+        Statement recipeStatement = connection.createStatement();
+        Statement ingredientStatement = connection.createStatement();
+        Statement stepStatement = connection.createStatement();
+        try {
+            // BINARY collation compares UTF-8 bytes, the order the app binary searches in
+            ResultSet recipes = recipeStatement.executeQuery("SELECT _id, title, description, prep_time, photo"
+                    + " FROM recipes WHERE _id IS NOT NULL ORDER BY _id");
+            ResultSet ingredients = ingredientStatement.executeQuery("SELECT recipe_id, _id, amount, description"
+                    + " FROM recipe_ingredients WHERE recipe_id IS NOT NULL ORDER BY recipe_id, _id");
+            ResultSet steps = stepStatement.executeQuery("SELECT recipe_id, description, photo"
+                    + " FROM recipe_instructions WHERE recipe_id IS NOT NULL ORDER BY recipe_id, num");
+            boolean moreIngredients = ingredients.next();
+            boolean moreSteps = steps.next();
+            ByteArrayOutputStream children = new ByteArrayOutputStream();
+            DataOutputStream childOut = new DataOutputStream(children);
+            while (recipes.next()) {
+                byte[] id = recipes.getBytes(1);
+                ids.add(id);
+                recordOffsets.add((long) out.size());
+                writeString(out, recipes.getString(2));
+                writeString(out, recipes.getString(3));
+                writeString(out, recipes.getString(4));
+                writeString(out, recipes.getString(5));
+
+                // rows of recipes that do not exist sort before the current id and are skipped
+                children.reset();
+                int count = 0;
+                int order;
+                while (moreIngredients && (order = compare(ingredients.getBytes(1), id)) <= 0) {
+                    if (order == 0) {
+                        childOut.writeLong(ingredients.getLong(2));
+                        writeString(childOut, ingredients.getString(3));
+                        writeString(childOut, ingredients.getString(4));
+                        count++;
+                    }
+                    moreIngredients = ingredients.next();
+                }
+                out.writeInt(count);
+                children.writeTo(out);
+
+                children.reset();
+                count = 0;
+                while (moreSteps && (order = compare(steps.getBytes(1), id)) <= 0) {
+                    if (order == 0) {
+                        writeString(childOut, steps.getString(2));
+                        writeString(childOut, steps.getString(3));
+                        count++;
+                    }
+                    moreSteps = steps.next();
+                }
+                out.writeInt(count);
+                children.writeTo(out);
+            }
+        } finally {
+            recipeStatement.close();
+            ingredientStatement.close();
+            stepStatement.close();
+        }
+    }
+
+    /**
+     * Compares UTF-8 strings byte by byte, unsigned, like SQLite's BINARY collation.
+     */
+    static int compare(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (a[i] & 0xff) - (b[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.tools;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Builds the photo pack asset: every photo referenced by the recipe catalog, scaled down to
+ * the width the app shows it at and re-encoded as JPEG, in one file.
+ *
+ * The layout is read by the app's PhotoPackRequestHandler. All numbers are big-endian.
+ * <pre>
+ * int   magic ('RPK1')
+ * int   entry count
+ * entry count times, sorted by URL:
+ *   int   URL length in bytes
+ *   byte  URL, UTF-8
+ *   long  offset of the image from the start of the file
+ *   int   image length in bytes
+ * image data
+ * </pre>
+ *
+ * Usage: PhotoPackBuilder &lt;recipes.db&gt; &lt;output.pack&gt; [--max-width px]
+ * [--quality 0-100] [--source-dir dir]
+ *
+ * With --source-dir, photos are read from dir/&lt;URL path&gt; instead of downloaded. Photos
+ * that cannot be read are left out; the app loads those from the network.
+ */
+public class PhotoPackBuilder {
+
+    static final int MAGIC = 0x52504B31;
+
+    private static final int DEFAULT_MAX_WIDTH = 1080;
+    private static final int DEFAULT_QUALITY = 85;
+
+    private final int maxWidth;
+    private final float quality;
+    private final File sourceDir;
+
+    public PhotoPackBuilder(int maxWidth, int quality, File sourceDir) {
+        this.maxWidth = maxWidth;
+        this.quality = quality / 100f;
+        this.sourceDir = sourceDir;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: PhotoPackBuilder <recipes.db> <output.pack>"
+                    + " [--max-width px] [--quality 0-100] [--source-dir dir]");
+            System.exit(2);
+        }
+        int maxWidth = DEFAULT_MAX_WIDTH;
+        int quality = DEFAULT_QUALITY;
+        File sourceDir = null;
+        for (int i = 2; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            if (args[i].equals("--max-width")) {
+                maxWidth = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("--quality")) {
+                quality = Integer.parseInt(args[i + 1]);
+            } else if (args[i].equals("--source-dir")) {
+                sourceDir = new File(args[i + 1]);
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        PhotoPackBuilder builder = new PhotoPackBuilder(maxWidth, quality, sourceDir);
+        List<String> urls = readPhotoUrls(new File(args[0]));
+        Map<String, byte[]> images = new TreeMap<String, byte[]>();
+        for (String url : urls) {
+            try {
+                images.put(url, builder.encode(builder.read(url)));
+            } catch (IOException e) {
+                System.err.println("Skipping " + url + ": " + e.getMessage());
+            }
+        }
+        long size = write(images, new File(args[1]));
+        System.out.println("Packed " + images.size() + " of " + urls.size() + " photos, " + size + " bytes");
+    }
+
+    /**
+     * Returns the distinct photo URLs of all recipes and steps.
+     */
+    static List<String> readPhotoUrls(File database) throws SQLException {
+        TreeSet<String> urls = new TreeSet<String>();
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database.getPath());
+        try {
+            Statement statement = connection.createStatement();
+            ResultSet rows = statement.executeQuery("SELECT photo FROM recipes WHERE photo IS NOT NULL"
+                    + " UNION SELECT photo FROM recipe_instructions WHERE photo IS NOT NULL");
+            while (rows.next()) {
+                urls.add(rows.getString(1));
+            }
+        } finally {
+            connection.close();
+        }
+        return new ArrayList<String>(urls);
+    }
+
+    private byte[] read(String url) throws IOException {
+        InputStream in;
+        if (sourceDir != null) {
+            in = Files.newInputStream(new File(sourceDir, new URL(url).getPath()).toPath());
+        } else {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + connection.getResponseCode());
+            }
+            in = connection.getInputStream();
+        }
+        try {
+            return in.readAllBytes();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Scales the image down to the maximum width and re-encodes it as JPEG.
+     */
+    byte[] encode(byte[] source) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(source));
+        if (image == null) {
+            throw new IOException("Not an image");
+        }
+        int width = Math.min(image.getWidth(), maxWidth);
+        int height = (int) Math.round((double) image.getHeight() * width / image.getWidth());
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageOutputStream imageOut = ImageIO.createImageOutputStream(out);
+        try {
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(scaled, null, null), param);
+        } finally {
+            imageOut.close();
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the pack through a temporary file, so a failed build never leaves half a pack.
+     *
+     * @return The size of the pack in bytes.
+     */
+    static long write(Map<String, byte[]> images, File output) throws IOException {
+        List<byte[]> urls = new ArrayList<byte[]>(images.size());
+        long indexSize = 8;
+        for (String url : images.keySet()) {
+            byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+            urls.add(bytes);
+            indexSize += 4 + bytes.length + 8 + 4;
+        }
+
+        File partial = new File(output.getPath() + ".partial");
+        OutputStream file = new FileOutputStream(partial);
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+            out.writeInt(MAGIC);
+            out.writeInt(images.size());
+            long offset = indexSize;
+            int i = 0;
+            for (byte[] image : images.values()) {
+                byte[] url = urls.get(i++);
+                out.writeInt(url.length);
+                out.write(url);
+                out.writeLong(offset);
+                out.writeInt(image.length);
+                offset += image.length;
+            }
+            for (byte[] image : images.values()) {
+                out.write(image);
+            }
+            out.flush();
+        } finally {
+            file.close();
+        }
+        if (!partial.renameTo(output)) {
+            Files.move(partial.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return output.length();
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.tools;
+
+import com.sopan.app_link.database.RecipeStatements;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks with EXPLAIN QUERY PLAN that the provider's per-recipe child queries are served by
+ * the recipe_id indexes of schema version 2 on a 100k-recipe generated catalog, rather than
+ * by scanning the child tables.
+ */
+public class RecipeIdIndexTest {
+
+    private static final int RECIPES = 100000;
+
+    private static final String INGREDIENTS_INDEX = "recipe_ingredients_recipe_id_idx";
+    private static final String INSTRUCTIONS_INDEX = "recipe_instructions_recipe_id_idx";
+
+    private static File catalog;
+    private static Connection connection;
+
+    @BeforeClass
+    public static void generateCatalog() throws Exception {
+        File template = new File(System.getProperty("tools.recipesDb", "../app/src/main/assets/databases/recipes.db"));
+        catalog = File.createTempFile("recipes-index-test", ".db");
+        CatalogGenerator.generate(template, catalog, RECIPES, CatalogGenerator.DEFAULT_SEED);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + catalog.getPath());
+    }
+
+    @AfterClass
+    public static void deleteCatalog() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+        if (catalog != null) {
+            catalog.delete();
+        }
+    }
+
+    @Test
+    public void ingredientsByRecipeSearchesIndexInOrder() throws SQLException {
+        String plan = explain(RecipeStatements.ingredientsByRecipe());
+        assertTrue(plan, plan.contains("SEARCH recipe_ingredients USING INDEX " + INGREDIENTS_INDEX));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void instructionsByRecipeSearchesIndexInOrder() throws SQLException {
+        String plan = explain(RecipeStatements.instructionsByRecipe());
+        assertTrue(plan, plan.contains("SEARCH recipe_instructions USING INDEX " + INSTRUCTIONS_INDEX));
+        assertFalse(plan, plan.contains("TEMP B-TREE"));
+    }
+
+    @Test
+    public void fullRecipeSearchesBothIndexes() throws SQLException {
+        String plan = explain(RecipeStatements.fullRecipe());
+        assertTrue(plan, plan.contains("SEARCH recipe_ingredients USING INDEX " + INGREDIENTS_INDEX));
+        assertTrue(plan, plan.contains("SEARCH recipe_instructions USING INDEX " + INSTRUCTIONS_INDEX));
+        assertNoChildTableScan(plan);
+    }
+
+    @Test
+    public void batchQueriesSearchIndexes() throws SQLException {
+        String ingredients = explain(RecipeStatements.ingredientsByRecipes(50));
+        assertTrue(ingredients, ingredients.contains("SEARCH recipe_ingredients USING INDEX " + INGREDIENTS_INDEX));
+        assertNoChildTableScan(ingredients);
+        String instructions = explain(RecipeStatements.instructionsByRecipes(50));
+        assertTrue(instructions, instructions.contains("SEARCH recipe_instructions USING INDEX " + INSTRUCTIONS_INDEX));
+        assertNoChildTableScan(instructions);
+    }
+
+    private static void assertNoChildTableScan(String plan) {
+        assertFalse(plan, plan.contains("SCAN recipe_ingredients"));
+        assertFalse(plan, plan.contains("SCAN recipe_instructions"));
+    }
+
+    /**
+     * Returns the plan details of the statement, one per line. Unbound parameters are
+     * planned as NULL, which plans the same index lookups as a bound recipe id.
+     */
+    private static String explain(String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet rows = statement.executeQuery("EXPLAIN QUERY PLAN " + sql);
+            while (rows.next()) {
+                plan.append(rows.getString("detail")).append('\n');
+            }
+        } finally {
+            statement.close();
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2014 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.sopan.app_link.tools;
+
+import com.sopan.app_link.database.FoodSearchTable;
+import com.sopan.app_link.database.RecipeStatements;
+import com.sopan.app_link.database.SearchRanker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the search index triggers of schema version 9 on a copy of the bundled catalog:
+ * only edits to the indexed recipe columns fire a trigger, ingredient writes fire none, the
+ * ingredients document is brought up to date by one reindex per recipe, and documents stay
+ * keyed to their recipes through search_id whatever happens to the rowids.
+ */
+public class RecipeSearchIndexTest {
+
+    private static final String RECIPE_ID = "grilled-potato-salad";
+
+    private File catalog;
+    private Connection connection;
+
+    @Before
+    public void copyCatalog() throws Exception {
+        File template = new File(System.getProperty("tools.recipesDb", "../app/src/main/assets/databases/recipes.db"));
+        catalog = File.createTempFile("recipes-search-test", ".db");
+        Files.copy(template.toPath(), catalog.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        connection = DriverManager.getConnection("jdbc:sqlite:" + catalog.getPath());
+    }
+
+    @After
+    public void deleteCatalog() throws SQLException {
+        connection.close();
+        catalog.delete();
+    }
+
+    @Test
+    public void ingredientTablesHaveNoTriggers() throws SQLException {
+        assertEquals(0, count("SELECT count(*) FROM sqlite_master WHERE type = 'trigger'"
+                + " AND tbl_name IN ('recipe_ingredients', 'recipe_instructions')"));
+    }
+
+    @Test
+    public void updateTriggerSkipsUnindexedColumns() throws SQLException {
+        assertEquals(1, changes("UPDATE recipes SET content_hash = 'x', prep_time_minutes = 1"
+                + " WHERE _id = '" + RECIPE_ID + "'"));
+    }
+
+    @Test
+    public void updateTriggerRewritesIndexedColumns() throws SQLException {
+        // the recipe row, then the trigger's rewrite of its document and the FTS shadow tables
+        assertTrue(1 < changes("UPDATE recipes SET description = 'smoky aubergine'"
+                + " WHERE _id = '" + RECIPE_ID + "'"));
+        assertEquals(1, count("SELECT count(*) FROM recipes_fts WHERE recipes_fts MATCH 'aubergine'"));
+    }
+
+    @Test
+    public void ingredientWritesNeedOneReindexPerRecipe() throws SQLException {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, changes("INSERT INTO recipe_ingredients (recipe_id, amount, description)"
+                    + " VALUES ('" + RECIPE_ID + "', '1', 'quince" + i + "')"));
+        }
+        assertEquals(0, count("SELECT count(*) FROM recipes_fts WHERE recipes_fts MATCH 'quince0'"));
+
+        PreparedStatement reindex = connection.prepareStatement(FoodSearchTable.REINDEX_INGREDIENTS);
+        try {
+            reindex.setString(1, RECIPE_ID);
+            assertEquals(1, reindex.executeUpdate());
+        } finally {
+            reindex.close();
+        }
+        assertEquals(1, count("SELECT count(*) FROM recipes_fts WHERE recipes_fts MATCH 'quince0 quince2'"));
+    }
+
+    @Test
+    public void rebuildMatchesRecipes() throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            for (String sql : FoodSearchTable.REBUILD) {
+                statement.execute(sql);
+            }
+        } finally {
+            statement.close();
+        }
+        assertEquals(count("SELECT count(*) FROM recipes"), count("SELECT count(*) FROM recipes_fts"
+                + " JOIN recipes ON recipes.search_id = recipes_fts.docid"
+                + " WHERE recipes_fts.title = recipes.title"));
+    }
+
+    @Test
+    public void insertedRecipeGetsNextSearchId() throws SQLException {
+        int maxSearchId = count("SELECT max(search_id) FROM recipes");
+        changes("INSERT INTO recipes (_id, title) VALUES ('quince-tart', 'Quince tart')");
+
+        assertEquals(maxSearchId + 1, count("SELECT search_id FROM recipes WHERE _id = 'quince-tart'"));
+        assertEquals(1, count("SELECT count(*) FROM recipes_fts JOIN recipes ON recipes.search_id = recipes_fts.docid"
+                + " WHERE recipes_fts MATCH 'quince' AND recipes._id = 'quince-tart'"));
+    }
+
+    @Test
+    public void documentsSurviveRowidRenumbering() throws SQLException {
+        // what VACUUM may do to a table without an INTEGER PRIMARY KEY
+        changes("UPDATE recipes SET rowid = rowid + 1000");
+
+        assertEquals(count("SELECT count(*) FROM recipes"), count("SELECT count(*) FROM recipes_fts"
+                + " JOIN recipes ON recipes.search_id = recipes_fts.docid"
+                + " WHERE recipes_fts.title = recipes.title"));
+        changes("DELETE FROM recipes WHERE _id = '" + RECIPE_ID + "'");
+        assertEquals(count("SELECT count(*) FROM recipes"), count("SELECT count(*) FROM recipes_fts"));
+    }
+
+    @Test
+    public void searchReturnsMatchInfo() throws SQLException {
+        PreparedStatement search = connection.prepareStatement(RecipeStatements.search());
+        try {
+            search.setString(1, "salad*");
+            ResultSet rows = search.executeQuery();
+            int matches = 0;
+            while (rows.next()) {
+                byte[] matchInfo = rows.getBytes(SearchRanker.MATCH_INFO_COLUMN);
+                // phrase and column counts, then three counts per phrase and column
+                assertEquals(4 * (2 + 3 * 3), matchInfo.length);
+                matches++;
+            }
+            assertTrue(matches > 0);
+        } finally {
+            search.close();
+        }
+    }
+
+    /** Returns the rows the statement changed, counting those changed by its triggers. */
+    private int changes(String sql) throws SQLException {
+        int before = count("SELECT total_changes()");
+        Statement statement = connection.createStatement();
+        try {
+            statement.executeUpdate(sql);
+        } finally {
+            statement.close();
+        }
+        return count("SELECT total_changes()") - before;
+    }
+
+    private int count(String sql) throws SQLException {
+        Statement statement = connection.createStatement();
+        try {
+            ResultSet rows = statement.executeQuery(sql);
+            rows.next();
+            return rows.getInt(1);
+        } finally {
+            statement.close();
+        }
+    }
+}